@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Генератор тестовых данных: создаёт отдельную базу H2 в памяти по миграциям Flyway
+ * и заполняет её фильмами, пользователями, лайками и дружбой.
+ * <p>
+ * Популярность фильмов распределена неравномерно (квадрат равномерной величины), чтобы
+ * небольшая доля фильмов собирала большую часть лайков, как в реальном каталоге.
+ * Генерация детерминирована при одинаковом {@code seed}.
+ */
+public final class BenchmarkData {
+    private static final int BATCH_SIZE = 1000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+    private static final String[] WORDS = {
+            "приключение", "любовь", "космос", "детектив", "город", "война", "семья", "тайна",
+            "море", "дорога", "время", "герой", "ночь", "мечта", "побег", "остров"
+    };
+
+    private final int films;
+    private final int users;
+    private final int likesPerUser;
+    private final int friendsPerUser;
+    private final long seed;
+
+    public BenchmarkData(int films, int users, int likesPerUser, int friendsPerUser, long seed) {
+        this.films = films;
+        this.users = users;
+        this.likesPerUser = likesPerUser;
+        this.friendsPerUser = friendsPerUser;
+        this.seed = seed;
+    }
+
+    /**
+     * Создаёт и заполняет базу, возвращает её JDBC URL. База живёт до остановки JVM.
+     */
+    public String populate() {
+        String url = "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "password");
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        SplittableRandom random = new SplittableRandom(seed);
+        insertFilms(jdbcTemplate, random);
+        insertUsers(jdbcTemplate);
+        insertLikes(jdbcTemplate, random);
+        insertFriendships(jdbcTemplate, random);
+        jdbcTemplate.update("UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)");
+        return url;
+    }
+
+    public int getFilms() {
+        return films;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    private void insertFilms(JdbcTemplate jdbcTemplate, SplittableRandom random) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        List<int[]> genres = new ArrayList<>();
+        for (int id = 1; id <= films; id++) {
+            rows.add(new Object[]{
+                    "Фильм " + id + " " + WORDS[random.nextInt(WORDS.length)],
+                    description(random),
+                    Date.valueOf(LocalDate.of(1950 + random.nextInt(75), 1 + random.nextInt(12), 1 + random.nextInt(28))),
+                    60 + random.nextInt(120),
+                    1 + random.nextInt(MPA_RATINGS)
+            });
+            int genreCount = random.nextInt(4);
+            int firstGenre = 1 + random.nextInt(GENRES);
+            for (int g = 0; g < genreCount; g++) {
+                genres.add(new int[]{id, 1 + (firstGenre + g - 1) % GENRES});
+            }
+            if (rows.size() == BATCH_SIZE) {
+                flushFilms(jdbcTemplate, rows);
+            }
+        }
+        flushFilms(jdbcTemplate, rows);
+        jdbcTemplate.batchUpdate("INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)", genres, BATCH_SIZE,
+                (stmt, link) -> {
+                    stmt.setInt(1, link[0]);
+                    stmt.setInt(2, link[1]);
+                });
+    }
+
+    private static void flushFilms(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)", rows);
+            rows.clear();
+        }
+    }
+
+    private void insertUsers(JdbcTemplate jdbcTemplate) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        for (int id = 1; id <= users; id++) {
+            rows.add(new Object[]{"user" + id + "@bench.ru", "user" + id, "Пользователь " + id,
+                    Date.valueOf(LocalDate.of(1970, 1, 1).plusDays(id % 15000))});
+            if (rows.size() == BATCH_SIZE || id == users) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    private void insertLikes(JdbcTemplate jdbcTemplate, SplittableRandom random) {
+        List<int[]> likes = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int filmId : distinct(random, Math.min(likesPerUser, films), films, true)) {
+                likes.add(new int[]{filmId, userId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", likes, BATCH_SIZE,
+                (stmt, like) -> {
+                    stmt.setInt(1, like[0]);
+                    stmt.setInt(2, like[1]);
+                });
+    }
+
+    private void insertFriendships(JdbcTemplate jdbcTemplate, SplittableRandom random) {
+        List<int[]> friendships = new ArrayList<>();
+        for (int userId = 1; userId <= users; userId++) {
+            for (int friendId : distinct(random, Math.min(friendsPerUser, users - 1), users, false)) {
+                if (friendId != userId) {
+                    friendships.add(new int[]{userId, friendId});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')",
+                friendships, BATCH_SIZE, (stmt, friendship) -> {
+                    stmt.setInt(1, friendship[0]);
+                    stmt.setInt(2, friendship[1]);
+                });
+    }
+
+    private static int[] distinct(SplittableRandom random, int count, int bound, boolean skewed) {
+        return random.ints(0, Integer.MAX_VALUE)
+                .map(value -> {
+                    double uniform = value / (double) Integer.MAX_VALUE;
+                    return 1 + (int) ((skewed ? uniform * uniform : uniform) * bound) % bound;
+                })
+                .distinct()
+                .limit(count)
+                .toArray();
+    }
+
+    private static String description(SplittableRandom random) {
+        StringBuilder description = new StringBuilder();
+        int words = 5 + random.nextInt(15);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                description.append(' ');
+            }
+            description.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return description.toString();
+    }
+}
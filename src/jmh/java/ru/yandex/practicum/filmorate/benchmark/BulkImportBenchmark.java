@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка {@code rows} фильмов: {@code POST /films/bulk} (разбор JSON-массива, проверка, пакетная
+ * вставка) против {@code rows} вызовов {@link FilmService#createFilm}. Счётчик {@code rows}
+ * показывает загруженные строки в секунду.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class BulkImportBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Import {
+        @Param({"100", "1000", "10000"})
+        public int rows;
+
+        ConfigurableApplicationContext context;
+        BulkImportService bulkImportService;
+        FilmService filmService;
+        byte[] body;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            context = FilmorateState.start(new BenchmarkData(0, 0, 0, 0, 42).populate());
+            bulkImportService = context.getBean(BulkImportService.class);
+            filmService = context.getBean(FilmService.class);
+
+            List<Film> films = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                films.add(film(i));
+            }
+            body = context.getBean(ObjectMapper.class).writeValueAsBytes(films);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Benchmark
+    public BulkImportResult bulkImport(Import state, Rows counter) throws IOException {
+        BulkImportResult result = state.bulkImportService.importFilms(new ByteArrayInputStream(state.body), false);
+        counter.rows += result.getImported();
+        return result;
+    }
+
+    @Benchmark
+    public int singleRowCreate(Import state, Rows counter) {
+        int lastId = 0;
+        for (int i = 0; i < state.rows; i++) {
+            lastId = state.filmService.createFilm(film(i)).getId();
+        }
+        counter.rows += state.rows;
+        return lastId;
+    }
+
+    private static Film film(int i) {
+        MpaRating mpa = new MpaRating();
+        mpa.setId(1 + i % 5);
+        Film film = new Film();
+        film.setName("Загрузка " + i);
+        film.setDescription("Фильм из пакетной загрузки");
+        film.setReleaseDate(LocalDate.of(1950 + i % 75, 1, 1));
+        film.setDuration(60 + i % 120);
+        film.setMpa(mpa);
+        return film;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общие друзья двух пользователей, у каждого из которых {@code friends} подтверждённых друзей,
+ * половина из них общая. Общие друзья возвращаются целиком, поэтому при больших списках время
+ * определяется загрузкой пользователей через кэш, а не пересечением.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommonFriendsBenchmark {
+    private static final int FIRST = 1;
+    private static final int SECOND = 2;
+
+    @State(Scope.Benchmark)
+    public static class Friends {
+        @Param({"10", "1000", "50000"})
+        public int friends;
+
+        ConfigurableApplicationContext context;
+        UserService userService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int half = friends / 2;
+            String url = new BenchmarkData(0, friends + half + 2, 0, 0, 42).populate();
+
+            // FIRST дружит с пользователями 3..friends+2, SECOND — со сдвигом на половину списка
+            List<Object[]> friendships = new ArrayList<>(friends * 2);
+            for (int i = 0; i < friends; i++) {
+                friendships.add(new Object[]{FIRST, 3 + i});
+                friendships.add(new Object[]{SECOND, 3 + half + i});
+            }
+            new JdbcTemplate(new DriverManagerDataSource(url, "sa", "password")).batchUpdate(
+                    "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, 'CONFIRMED')", friendships);
+
+            context = FilmorateState.start(url);
+            userService = context.getBean(UserService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(Friends state) {
+        return state.userService.getCommonFriends(FIRST, SECOND);
+    }
+}
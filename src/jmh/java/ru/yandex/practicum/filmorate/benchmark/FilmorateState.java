@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+/**
+ * Контекст приложения без веб-слоя поверх сгенерированной базы; создаётся один раз на запуск бенчмарка.
+ */
+@State(Scope.Benchmark)
+public class FilmorateState {
+    @Param({"10000"})
+    public int films;
+
+    @Param({"10000"})
+    public int users;
+
+    @Param({"20"})
+    public int likesPerUser;
+
+    @Param({"20"})
+    public int friendsPerUser;
+
+    public ConfigurableApplicationContext context;
+    public FilmDbStorage filmStorage;
+    public FilmCache filmCache;
+    public FilmService filmService;
+    public UserService userService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start(new BenchmarkData(films, users, likesPerUser, friendsPerUser, 42).populate());
+        filmStorage = context.getBean(FilmDbStorage.class);
+        filmCache = context.getBean(FilmCache.class);
+        filmService = context.getBean(FilmService.class);
+        userService = context.getBean(UserService.class);
+    }
+
+    /**
+     * Поднимает приложение без веб-слоя поверх базы {@code url}; используется и состояниями
+     * бенчмарков со своими наборами данных.
+     */
+    static ConfigurableApplicationContext start(String url) {
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties(
+                        "spring.datasource.url=" + url,
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+}
@@ -0,0 +1,80 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Память графа дружбы: оценка {@link FriendshipGraph#memoryFootprintBytes()} против фактического
+ * прироста кучи после полной сборки мусора. Граф строится без базы через {@code setEdge},
+ * по {@value #FRIENDS_PER_USER} подтверждённых связей на пользователя:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.GraphFootprintReport \
+ *     -Dbenchmark.args="target/graph-footprint.json 1000000 50000000"
+ * </pre>
+ * Оценка вызывается после замера, поэтому граф гарантированно жив во время сборки мусора.
+ */
+public final class GraphFootprintReport {
+    private static final int FRIENDS_PER_USER = 50;
+
+    private GraphFootprintReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "target/graph-footprint.json";
+        List<Long> sizes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            sizes.add(Long.parseLong(args[i]));
+        }
+        if (sizes.isEmpty()) {
+            sizes = List.of(1_000_000L, 50_000_000L);
+        }
+
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (long edges : sizes) {
+            report.add(measure(edges));
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(output), report);
+        System.out.println(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report));
+    }
+
+    private static Map<String, Object> measure(long edges) {
+        int users = (int) (edges / FRIENDS_PER_USER);
+        long before = usedAfterGc();
+
+        FriendshipGraph graph = new FriendshipGraph(null);
+        for (int userId = 1; userId <= users; userId++) {
+            for (int k = 1; k <= FRIENDS_PER_USER; k++) {
+                graph.setEdge(userId, 1 + (userId + k - 1) % users, FriendshipStatus.CONFIRMED);
+            }
+        }
+
+        long measured = usedAfterGc() - before;
+        long estimated = graph.memoryFootprintBytes();
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("users", users);
+        entry.put("edges", (long) users * FRIENDS_PER_USER);
+        entry.put("estimatedBytes", estimated);
+        entry.put("measuredBytes", measured);
+        entry.put("measuredBytesPerEdge", (double) measured / ((long) users * FRIENDS_PER_USER));
+        return entry;
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
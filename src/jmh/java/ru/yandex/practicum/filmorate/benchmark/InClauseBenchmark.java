@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Загрузка жанров для {@code ids} фильмов из каталога в {@value #CATALOG_SIZE}: запросы с IN-списками
+ * фиксированных размеров ({@code loadGenresForFilms}) против одного IN-списка на все id, текст
+ * которого меняется с каждым размером и разбирается H2 заново. Размер выборки случайно смещается на несколько id,
+ * чтобы одиночный список не попадал в кэш разобранных запросов.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InClauseBenchmark {
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int SIZE_JITTER = 8;
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"10", "1000", "100000"})
+        public int ids;
+
+        ConfigurableApplicationContext context;
+        FilmDbStorage filmStorage;
+        JdbcTemplate jdbcTemplate;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = FilmorateState.start(new BenchmarkData(CATALOG_SIZE, 10, 0, 0, 42).populate());
+            filmStorage = context.getBean(FilmDbStorage.class);
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+
+        List<Film> page() {
+            int size = Math.max(1, ids - ThreadLocalRandom.current().nextInt(Math.min(SIZE_JITTER, ids)));
+            int first = 1 + ThreadLocalRandom.current().nextInt(CATALOG_SIZE - size + 1);
+            List<Film> page = new ArrayList<>(size);
+            for (int id = first; id < first + size; id++) {
+                Film film = new Film();
+                film.setId(id);
+                page.add(film);
+            }
+            return page;
+        }
+    }
+
+    @Benchmark
+    public List<Film> chunkedInLists(Catalog catalog) {
+        List<Film> page = catalog.page();
+        catalog.filmStorage.loadGenresForFilms(page);
+        return page;
+    }
+
+    /**
+     * Тот же запрос и то же наполнение фильмов, что и в {@code loadGenresForFilms}, но одним IN-списком.
+     */
+    @Benchmark
+    public List<Film> singleInList(Catalog catalog) {
+        List<Film> page = catalog.page();
+        String sql = "SELECT fg.film_id, g.id, g.name " +
+                "FROM film_genres fg " +
+                "JOIN genres g ON fg.genre_id = g.id " +
+                "WHERE fg.film_id IN (" + String.join(",", Collections.nCopies(page.size(), "?")) + ") " +
+                "ORDER BY fg.film_id, g.id";
+
+        Map<Integer, List<Genre>> genresByFilmId = new HashMap<>();
+        catalog.jdbcTemplate.query(sql, rs -> {
+            Genre genre = new Genre();
+            genre.setId(rs.getInt("id"));
+            genre.setName(rs.getString("name"));
+            genresByFilmId.computeIfAbsent(rs.getInt("film_id"), k -> new ArrayList<>()).add(genre);
+        }, page.stream().map(Film::getId).toArray());
+
+        for (Film film : page) {
+            List<Genre> genres = genresByFilmId.get(film.getId());
+            film.setGenres(genres != null ? new LinkedHashSet<>(genres) : new LinkedHashSet<>());
+        }
+        return page;
+    }
+}
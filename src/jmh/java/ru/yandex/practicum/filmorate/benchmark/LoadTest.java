@@ -0,0 +1,378 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBehindBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Нагрузочный тест через HTTP: поднимает приложение на случайном порту поверх данных
+ * {@link BenchmarkData} и воспроизводит фиксированную смесь запросов.
+ * <p>
+ * Модель нагрузки замкнутая: {@code clients} клиентов отправляют запросы друг за другом без пауз,
+ * выбор запроса и его параметров детерминирован {@code seed} каждого клиента. Первые {@code warmup}
+ * секунд не учитываются. Отчёт содержит пропускную способность, p50/p99/p999 по каждому запросу
+ * и скорость выделения памяти потоками сервера. Клиенты работают в том же процессе, поэтому их потоки
+ * (пул {@code load-client-} и служебные потоки {@code HttpClient-}) в замер не входят; выделения
+ * виртуальных потоков учитываются в потоках-носителях, а потоки, завершившиеся за время замера, теряются.
+ * Если нарушен хотя бы один порог SLO, процесс завершается с кодом 1.
+ * <p>
+ * {@code write-behind=true} включает отложенную запись лайков ({@code filmorate.likes.write-behind.enabled});
+ * два запуска с {@code true} и {@code false} сравнивают задержки LIKE/UNLIKE с ней и без неё.
+ * В отчёт попадает режим и число лайков, оставшихся в буфере к концу замера.
+ * <p>
+ * Параметры передаются аргументами {@code ключ=значение}, например:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.LoadTest \
+ *     -Dbenchmark.args="duration=60 clients=64 virtual=true slo.p99-ms=50"
+ * </pre>
+ */
+public final class LoadTest {
+    private static final List<String> CLIENT_THREAD_PREFIXES = List.of("load-client-", "HttpClient-");
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("films", "10000"),
+            Map.entry("users", "10000"),
+            Map.entry("likes-per-user", "20"),
+            Map.entry("friends-per-user", "20"),
+            Map.entry("seed", "42"),
+            Map.entry("clients", "32"),
+            Map.entry("warmup", "10"),
+            Map.entry("duration", "30"),
+            Map.entry("virtual", "false"),
+            Map.entry("write-behind", "false"),
+            Map.entry("output", "target/load-test.json"),
+            Map.entry("slo.p99-ms", "100"),
+            Map.entry("slo.p999-ms", "500"),
+            Map.entry("slo.min-rps", "0"),
+            Map.entry("slo.max-error-rate", "0.001"));
+
+    private enum Operation {
+        POPULAR(70),
+        LIKE(8),
+        UNLIKE(5),
+        ADD_FRIEND(5),
+        COMMON_FRIENDS(7),
+        CREATE_FILM(3),
+        UPDATE_FILM(2);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0 || !DEFAULTS.containsKey(arg.substring(0, separator))) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + arg + ", допустимые: " + DEFAULTS.keySet());
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        int films = Integer.parseInt(options.get("films"));
+        int users = Integer.parseInt(options.get("users"));
+        long seed = Long.parseLong(options.get("seed"));
+        String url = new BenchmarkData(films, users, Integer.parseInt(options.get("likes-per-user")),
+                Integer.parseInt(options.get("friends-per-user")), seed).populate();
+
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .logStartupInfo(false)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + url,
+                        "spring.threads.virtual.enabled=" + options.get("virtual"),
+                        "filmorate.likes.write-behind.enabled=" + options.get("write-behind"),
+                        "logging.level.root=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        Map<String, Object> report;
+        try {
+            report = run(URI.create("http://localhost:" + port), options, films, users, seed);
+            report.put("writeBehind", Boolean.parseBoolean(options.get("write-behind")));
+            report.put("pendingLikes", context.getBean(LikeWriteBehindBuffer.class).getPendingCount());
+        } finally {
+            context.close();
+        }
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(new File(options.get("output")), report);
+        @SuppressWarnings("unchecked")
+        List<String> violations = (List<String>) report.get("violations");
+        System.out.println(new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(report));
+        if (!violations.isEmpty()) {
+            System.err.println("Нарушены пороги SLO: " + violations);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Object> run(URI base, Map<String, String> options, int films, int users, long seed)
+            throws Exception {
+        int clients = Integer.parseInt(options.get("clients"));
+        long warmupNanos = Duration.ofSeconds(Long.parseLong(options.get("warmup"))).toNanos();
+        long durationNanos = Duration.ofSeconds(Long.parseLong(options.get("duration"))).toNanos();
+
+        HttpClient http = HttpClient.newBuilder()
+                .executor(Executors.newCachedThreadPool(Thread.ofPlatform().name("load-client-http-", 0).factory()))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long stopAt = measureFrom + durationNanos;
+        long allocatedBefore;
+
+        List<Future<Client>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(clients,
+                Thread.ofPlatform().name("load-client-", 0).factory())) {
+            for (int i = 0; i < clients; i++) {
+                Client client = new Client(http, base, new SplittableRandom(seed + i), films, users);
+                results.add(executor.submit(() -> client.run(measureFrom, stopAt)));
+            }
+            Thread.sleep(Duration.ofNanos(warmupNanos));
+            allocatedBefore = serverAllocatedBytes(threads);
+        }
+        long allocated = serverAllocatedBytes(threads) - allocatedBefore;
+        double seconds = durationNanos / 1e9;
+
+        Map<Operation, Recorder> merged = new LinkedHashMap<>();
+        for (Future<Client> result : results) {
+            result.get().recorders.forEach((operation, recorder) ->
+                    merged.computeIfAbsent(operation, k -> new Recorder()).addAll(recorder));
+        }
+
+        double p99Limit = Double.parseDouble(options.get("slo.p99-ms"));
+        double p999Limit = Double.parseDouble(options.get("slo.p999-ms"));
+        double minRps = Double.parseDouble(options.get("slo.min-rps"));
+        double maxErrorRate = Double.parseDouble(options.get("slo.max-error-rate"));
+
+        List<String> violations = new ArrayList<>();
+        Map<String, Object> operations = new LinkedHashMap<>();
+        long total = 0;
+        long errors = 0;
+        for (Map.Entry<Operation, Recorder> entry : merged.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] sorted = recorder.sorted();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", sorted.length);
+            stats.put("rps", sorted.length / seconds);
+            stats.put("p50Ms", percentile(sorted, 0.50));
+            stats.put("p99Ms", percentile(sorted, 0.99));
+            stats.put("p999Ms", percentile(sorted, 0.999));
+            stats.put("maxMs", percentile(sorted, 1.0));
+            stats.put("clientErrors", recorder.clientErrors);
+            stats.put("serverErrors", recorder.serverErrors);
+            operations.put(entry.getKey().name(), stats);
+
+            if (percentile(sorted, 0.99) > p99Limit) {
+                violations.add(entry.getKey() + " p99 " + percentile(sorted, 0.99) + " мс > " + p99Limit);
+            }
+            if (percentile(sorted, 0.999) > p999Limit) {
+                violations.add(entry.getKey() + " p999 " + percentile(sorted, 0.999) + " мс > " + p999Limit);
+            }
+            total += sorted.length;
+            errors += recorder.serverErrors;
+        }
+
+        double rps = total / seconds;
+        double errorRate = total == 0 ? 0 : (double) errors / total;
+        if (rps < minRps) {
+            violations.add("пропускная способность " + rps + " < " + minRps);
+        }
+        if (errorRate > maxErrorRate) {
+            violations.add("доля ошибок " + errorRate + " > " + maxErrorRate);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", new LinkedHashMap<>(options));
+        report.put("requests", total);
+        report.put("rps", rps);
+        report.put("errorRate", errorRate);
+        report.put("allocationMbPerSecond", allocated / seconds / (1024 * 1024));
+        report.put("operations", operations);
+        report.put("violations", violations);
+        return report;
+    }
+
+    /**
+     * Сумма байтов, выделенных живыми потоками процесса, кроме потоков нагрузочных клиентов.
+     */
+    private static long serverAllocatedBytes(com.sun.management.ThreadMXBean threads) {
+        long[] ids = Arrays.stream(threads.getThreadInfo(threads.getAllThreadIds()))
+                .filter(info -> info != null && !isClientThread(info))
+                .mapToLong(ThreadInfo::getThreadId)
+                .toArray();
+        return Arrays.stream(threads.getThreadAllocatedBytes(ids)).filter(bytes -> bytes > 0).sum();
+    }
+
+    private static boolean isClientThread(ThreadInfo info) {
+        return info.getThreadId() == Thread.currentThread().threadId()
+                || CLIENT_THREAD_PREFIXES.stream().anyMatch(info.getThreadName()::startsWith);
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+
+    private static final class Client {
+        private static final int TOTAL_WEIGHT = Arrays.stream(Operation.values()).mapToInt(o -> o.weight).sum();
+
+        private final HttpClient http;
+        private final URI base;
+        private final SplittableRandom random;
+        private final int films;
+        private final int users;
+        private final Map<Operation, Recorder> recorders = new HashMap<>();
+
+        private Client(HttpClient http, URI base, SplittableRandom random, int films, int users) {
+            this.http = http;
+            this.base = base;
+            this.random = random;
+            this.films = films;
+            this.users = users;
+        }
+
+        private Client run(long measureFrom, long stopAt) {
+            long now;
+            while ((now = System.nanoTime()) < stopAt) {
+                Operation operation = next();
+                HttpRequest request = request(operation);
+                int status;
+                try {
+                    status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (IOException e) {
+                    status = 599;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return this;
+                }
+                long elapsed = System.nanoTime() - now;
+                if (now >= measureFrom) {
+                    recorders.computeIfAbsent(operation, k -> new Recorder()).record(elapsed, status);
+                }
+            }
+            return this;
+        }
+
+        private Operation next() {
+            int roll = random.nextInt(TOTAL_WEIGHT);
+            for (Operation operation : Operation.values()) {
+                roll -= operation.weight;
+                if (roll < 0) {
+                    return operation;
+                }
+            }
+            throw new IllegalStateException();
+        }
+
+        private HttpRequest request(Operation operation) {
+            int filmId = 1 + random.nextInt(films);
+            int userId = 1 + random.nextInt(users);
+            int otherId = 1 + random.nextInt(users);
+            return switch (operation) {
+                case POPULAR -> get("/films/popular?count=10");
+                case LIKE -> send("PUT", "/films/" + filmId + "/like/" + userId, null);
+                case UNLIKE -> send("DELETE", "/films/" + filmId + "/like/" + userId, null);
+                case ADD_FRIEND -> send("PUT", "/users/" + userId + "/friends/" + otherId, null);
+                case COMMON_FRIENDS -> get("/users/" + userId + "/friends/common/" + otherId);
+                case CREATE_FILM -> send("POST", "/films", film(null));
+                case UPDATE_FILM -> send("PUT", "/films", film(filmId));
+            };
+        }
+
+        private String film(Integer id) {
+            return "{" + (id != null ? "\"id\":" + id + "," : "")
+                    + "\"name\":\"Нагрузочный фильм " + random.nextInt(1_000_000) + "\","
+                    + "\"description\":\"Фильм, созданный нагрузочным тестом\","
+                    + "\"releaseDate\":\"2001-01-01\",\"duration\":100,"
+                    + "\"mpa\":{\"id\":" + (1 + random.nextInt(5)) + "},"
+                    + "\"genres\":[{\"id\":" + (1 + random.nextInt(6)) + "}]}";
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(base.resolve(path)).timeout(Duration.ofSeconds(10)).GET().build();
+        }
+
+        private HttpRequest send(String method, String path, String body) {
+            return HttpRequest.newBuilder(base.resolve(path))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .method(method, body == null
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+        }
+    }
+
+    private static final class Recorder {
+        private long[] nanos = new long[1024];
+        private int size;
+        private long clientErrors;
+        private long serverErrors;
+
+        private void record(long elapsedNanos, int status) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = elapsedNanos;
+            if (status >= 500) {
+                serverErrors++;
+            } else if (status >= 400) {
+                clientErrors++;
+            }
+        }
+
+        private void addAll(Recorder other) {
+            if (size + other.size > nanos.length) {
+                nanos = Arrays.copyOf(nanos, Math.max(nanos.length * 2, size + other.size));
+            }
+            System.arraycopy(other.nanos, 0, nanos, size, other.size);
+            size += other.size;
+            clientErrors += other.clientErrors;
+            serverErrors += other.serverErrors;
+        }
+
+        private long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.web.servlet.setup.StandaloneMockMvcBuilder;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.Logbook;
+import org.zalando.logbook.core.BodyFilters;
+import org.zalando.logbook.core.DefaultHttpLogWriter;
+import org.zalando.logbook.core.DefaultSink;
+import org.zalando.logbook.json.JsonHttpLogFormatter;
+import org.zalando.logbook.servlet.LogbookFilter;
+import ru.yandex.practicum.filmorate.config.LogbookConfig;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Накладные расходы журнала Logbook на один запрос {@code GET /films/popular} (100 фильмов в ответе)
+ * при разных настройках. Запрос проходит через {@link LogbookFilter} в MockMvc без сети и базы,
+ * журнал пишется в отбрасывающий поток синхронно или через {@link AsyncAppender}.
+ * <ul>
+ *     <li>{@code OFF} — без фильтра Logbook, базовая линия;</li>
+ *     <li>{@code EXCLUDED} — путь исключён через {@code filmorate.logbook.exclude};</li>
+ *     <li>{@code SAMPLED} — журналируется доля {@value #SAMPLE_RATE} запросов;</li>
+ *     <li>{@code CAPPED} — журналируется каждый запрос, тело обрезается до {@value #MAX_BODY_SIZE} символов;</li>
+ *     <li>{@code FULL} — журналируется каждый запрос целиком.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final String LOGBOOK_LOGGER = "org.zalando.logbook.Logbook";
+    private static final double SAMPLE_RATE = 0.01;
+    private static final int MAX_BODY_SIZE = 1024;
+    private static final int POPULAR_FILMS = 100;
+
+    public enum Logging { OFF, EXCLUDED, SAMPLED, CAPPED, FULL }
+
+    public enum Output { SYNC, ASYNC }
+
+    @Param({"OFF", "EXCLUDED", "SAMPLED", "CAPPED", "FULL"})
+    public Logging logging;
+
+    @Param({"SYNC", "ASYNC"})
+    public Output output;
+
+    private MockMvc mockMvc;
+    private Logger logbookLogger;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).setLevel(ch.qos.logback.classic.Level.WARN);
+        logbookLogger = context.getLogger(LOGBOOK_LOGGER);
+        logbookLogger.detachAndStopAllAppenders();
+        logbookLogger.setAdditive(false);
+        logbookLogger.setLevel(ch.qos.logback.classic.Level.TRACE);
+        logbookLogger.addAppender(appender(context));
+
+        StandaloneMockMvcBuilder builder = MockMvcBuilders.standaloneSetup(new PopularController());
+        if (logging != Logging.OFF) {
+            builder.addFilters(new LogbookFilter(logbook()));
+        }
+        mockMvc = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logbookLogger.detachAndStopAllAppenders();
+    }
+
+    @Benchmark
+    public MvcResult getPopular() throws Exception {
+        return mockMvc.perform(get("/films/popular")).andReturn();
+    }
+
+    private Logbook logbook() {
+        LogbookConfig config = new LogbookConfig();
+        Predicate<HttpRequest> condition = switch (logging) {
+            case EXCLUDED -> config.requestCondition(List.of("/films/popular"), 1.0);
+            case SAMPLED -> config.requestCondition(List.of(), SAMPLE_RATE);
+            default -> config.requestCondition(List.of(), 1.0);
+        };
+        var builder = Logbook.builder()
+                .condition(condition)
+                .sink(new DefaultSink(new JsonHttpLogFormatter(), new DefaultHttpLogWriter()));
+        if (logging == Logging.CAPPED) {
+            builder.bodyFilter(BodyFilters.truncate(MAX_BODY_SIZE));
+        }
+        return builder.build();
+    }
+
+    private Appender<ILoggingEvent> appender(LoggerContext context) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d %-5level [%thread] %logger - %msg%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> stream = new OutputStreamAppender<>();
+        stream.setContext(context);
+        stream.setEncoder(encoder);
+        stream.setOutputStream(OutputStream.nullOutputStream());
+        stream.start();
+        if (output == Output.SYNC) {
+            return stream;
+        }
+
+        // Те же настройки очереди, что и в logback-spring.xml
+        AsyncAppender async = new AsyncAppender();
+        async.setContext(context);
+        async.setQueueSize(8192);
+        async.setDiscardingThreshold(0);
+        async.setNeverBlock(true);
+        async.addAppender(stream);
+        async.start();
+        return async;
+    }
+
+    @RestController
+    static class PopularController {
+        private final List<Film> films = new ArrayList<>(POPULAR_FILMS);
+
+        PopularController() {
+            for (int id = 1; id <= POPULAR_FILMS; id++) {
+                Film film = new Film();
+                film.setId(id);
+                film.setName("Фильм " + id);
+                film.setDescription("Описание фильма " + id);
+                film.setReleaseDate(LocalDate.of(2000, 1, 1).plusDays(id));
+                film.setDuration(90 + id % 60);
+                MpaRating mpa = new MpaRating();
+                mpa.setId(1 + id % 5);
+                mpa.setName("G");
+                film.setMpa(mpa);
+                Genre genre = new Genre();
+                genre.setId(1 + id % 6);
+                genre.setName("Комедия");
+                film.setGenres(Set.of(genre));
+                films.add(film);
+            }
+        }
+
+        @GetMapping("/films/popular")
+        public List<Film> getPopular() {
+            return films;
+        }
+    }
+}
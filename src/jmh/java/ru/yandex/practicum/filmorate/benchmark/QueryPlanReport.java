@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчёт по запросам хранилищ: план выполнения H2 и время выполнения на сгенерированных данных.
+ * <p>
+ * Для чтений план берётся из {@code EXPLAIN ANALYZE} (с фактическим числом прочитанных строк),
+ * а время — медиана и максимум из {@link #RUNS} запусков. Изменяющие запросы только
+ * объясняются через {@code EXPLAIN} и не выполняются. Результат пишется в JSON:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec \
+ *     -Dbenchmark.main=ru.yandex.practicum.filmorate.benchmark.QueryPlanReport \
+ *     -Dbenchmark.args="target/query-plans.json 10000 10000"
+ * </pre>
+ */
+public final class QueryPlanReport {
+    private static final int RUNS = 50;
+    private static final String FILM_COLUMNS =
+            "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name, m.description AS mpa_description " +
+            "FROM films f LEFT JOIN mpa_ratings m ON f.mpa_id = m.id ";
+
+    private QueryPlanReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "target/query-plans.json";
+        int films = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+
+        String url = new BenchmarkData(films, users, 20, 20, 42).populate();
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(url, "sa", "password", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (Query query : reads()) {
+            report.add(measure(jdbcTemplate, query));
+        }
+        for (Query query : writes()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", query.name());
+            entry.put("sql", query.sql());
+            entry.put("plan", explain(jdbcTemplate, "EXPLAIN ", query));
+            report.add(entry);
+        }
+        dataSource.destroy();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("films", films);
+        result.put("users", users);
+        result.put("runs", RUNS);
+        result.put("queries", report);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(output), result);
+        System.out.println("Отчёт по " + report.size() + " запросам записан в " + output);
+    }
+
+    private static List<Query> reads() {
+        return List.of(
+                new Query("FilmDbStorage.getAll", FILM_COLUMNS),
+                new Query("FilmDbStorage.getPage", FILM_COLUMNS + "WHERE f.id > ? ORDER BY f.id LIMIT ?", 5000, 100),
+                new Query("FilmDbStorage.getById", FILM_COLUMNS + "WHERE f.id = ?", 42),
+                new Query("FilmDbStorage.getByIds", FILM_COLUMNS + "WHERE f.id IN (?, ?, ?, ?)", 1, 10, 100, 1000),
+                new Query("FilmDbStorage.loadGenresForFilms",
+                        "SELECT fg.film_id, g.id, g.name FROM film_genres fg JOIN genres g ON fg.genre_id = g.id " +
+                        "WHERE fg.film_id IN (?, ?, ?, ?) ORDER BY fg.film_id, g.id", 1, 10, 100, 1000),
+                new Query("FilmDbStorage.getPopular", FILM_COLUMNS + "WHERE 1 = 1 " +
+                        "ORDER BY f.likes_count DESC, f.id LIMIT ?", 10),
+                new Query("FilmDbStorage.getPopular(genre, year)", FILM_COLUMNS + "WHERE 1 = 1 " +
+                        "AND EXISTS (SELECT 1 FROM film_genres fg WHERE fg.film_id = f.id AND fg.genre_id = ?) " +
+                        "AND f.release_date >= ? AND f.release_date < ? " +
+                        "ORDER BY f.likes_count DESC, f.id LIMIT ?", 2, "1999-01-01", "2000-01-01", 10),
+                new Query("FilmDbStorage.exists", "SELECT COUNT(*) FROM films WHERE id = ?", 42),
+                new Query("FilmDbStorage.getLikes", "SELECT user_id FROM likes WHERE film_id = ?", 1),
+                new Query("UserDbStorage.getAll", "SELECT * FROM users"),
+                new Query("UserDbStorage.getById", "SELECT * FROM users WHERE id = ?", 42),
+                new Query("UserDbStorage.exists", "SELECT COUNT(*) FROM users WHERE id = ?", 42),
+                new Query("FriendshipGraph.reload",
+                        "SELECT user_id, friend_id, status FROM friendships ORDER BY user_id, friend_id"),
+                new Query("FilmLikesIndex.reload", "SELECT user_id, film_id FROM likes ORDER BY user_id, film_id"),
+                new Query("friendships by status",
+                        "SELECT friend_id FROM friendships WHERE user_id = ? AND status = 'CONFIRMED'", 42),
+                new Query("incoming friend requests", "SELECT user_id FROM friendships WHERE friend_id = ?", 42),
+                new Query("likes by user", "SELECT film_id FROM likes WHERE user_id = ?", 42)
+        );
+    }
+
+    private static List<Query> writes() {
+        return List.of(
+                new Query("FilmDbStorage.addLike",
+                        "MERGE INTO likes l USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER))) " +
+                        "AS s(film_id, user_id) ON l.film_id = s.film_id AND l.user_id = s.user_id " +
+                        "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)", 1, 1),
+                new Query("FilmDbStorage.removeLike", "DELETE FROM likes WHERE film_id = ? AND user_id = ?", 1, 1),
+                new Query("FilmDbStorage.update", "UPDATE films SET name = ?, description = ?, release_date = ?, " +
+                        "duration = ?, mpa_id = ? WHERE id = ?", "x", "x", "2000-01-01", 90, 1, 1),
+                new Query("FilmDbStorage.delete (likes)", "DELETE FROM likes WHERE film_id = ?", 1),
+                new Query("FilmDbStorage.recalculateLikesCount", "UPDATE films f SET likes_count = " +
+                        "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id) " +
+                        "WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)"),
+                new Query("UserDbStorage.delete (friendships)",
+                        "DELETE FROM friendships WHERE user_id = ? OR friend_id = ?", 1, 1),
+                new Query("UserDbStorage.delete (likes count)", "UPDATE films SET likes_count = likes_count - 1 " +
+                        "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)", 1),
+                new Query("UserDbStorage.delete (likes)", "DELETE FROM likes WHERE user_id = ?", 1),
+                new Query("UserDbStorage.updateFriendshipStatus",
+                        "UPDATE friendships SET status = ? WHERE user_id = ? AND friend_id = ?", "CONFIRMED", 1, 2)
+        );
+    }
+
+    private static Map<String, Object> measure(JdbcTemplate jdbcTemplate, Query query) {
+        long[] nanos = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            jdbcTemplate.query(query.sql(), rs -> {
+            }, query.params());
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("name", query.name());
+        entry.put("sql", query.sql());
+        entry.put("plan", explain(jdbcTemplate, "EXPLAIN ANALYZE ", query));
+        entry.put("medianMicros", nanos[RUNS / 2] / 1000.0);
+        entry.put("maxMicros", nanos[RUNS - 1] / 1000.0);
+        return entry;
+    }
+
+    private static String explain(JdbcTemplate jdbcTemplate, String prefix, Query query) {
+        return jdbcTemplate.queryForObject(prefix + query.sql(), String.class, query.params());
+    }
+
+    private record Query(String name, String sql, Object... params) {
+    }
+}
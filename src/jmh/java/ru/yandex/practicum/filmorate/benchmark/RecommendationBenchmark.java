@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Рекомендации фильмов случайному пользователю при {@code users} пользователях и
+ * {@value #LIKES_PER_USER} лайках у каждого: 100 тыс. пользователей дают 1 млн лайков.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RecommendationBenchmark {
+    private static final int FILMS = 10_000;
+    private static final int LIKES_PER_USER = 10;
+
+    @State(Scope.Benchmark)
+    public static class Likes {
+        @Param({"10000", "100000"})
+        public int users;
+
+        ConfigurableApplicationContext context;
+        FilmService filmService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = FilmorateState.start(new BenchmarkData(FILMS, users, LIKES_PER_USER, 0, 42).populate());
+            filmService = context.getBean(FilmService.class);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations(Likes state) {
+        return state.filmService.getRecommendations(ThreadLocalRandom.current().nextInt(1, state.users + 1), 10);
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.storage.film.FilmRowMapper;
+import ru.yandex.practicum.filmorate.storage.user.UserRowMapper;
+
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Стоимость преобразования строк результата в модели без обращения к базе:
+ * строки берутся из {@link SimpleResultSet} в памяти.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+    @Param({"1000"})
+    public int rows;
+
+    private final FilmRowMapper filmRowMapper = new FilmRowMapper();
+    private final UserRowMapper userRowMapper = new UserRowMapper();
+    private SimpleResultSet filmRows;
+    private SimpleResultSet userRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        filmRows = new SimpleResultSet();
+        filmRows.setAutoClose(false);
+        filmRows.addColumn("id", Types.INTEGER, 10, 0);
+        filmRows.addColumn("name", Types.VARCHAR, 255, 0);
+        filmRows.addColumn("description", Types.VARCHAR, 200, 0);
+        filmRows.addColumn("release_date", Types.DATE, 10, 0);
+        filmRows.addColumn("duration", Types.INTEGER, 10, 0);
+
+        userRows = new SimpleResultSet();
+        userRows.setAutoClose(false);
+        userRows.addColumn("id", Types.INTEGER, 10, 0);
+        userRows.addColumn("email", Types.VARCHAR, 255, 0);
+        userRows.addColumn("login", Types.VARCHAR, 255, 0);
+        userRows.addColumn("name", Types.VARCHAR, 255, 0);
+        userRows.addColumn("birthday", Types.DATE, 10, 0);
+
+        for (int id = 1; id <= rows; id++) {
+            filmRows.addRow(id, "Фильм " + id, "Описание фильма " + id,
+                    Date.valueOf(LocalDate.of(2000, 1, 1).plusDays(id)), 90 + id % 60);
+            userRows.addRow(id, "user" + id + "@bench.ru", "user" + id, "Пользователь " + id,
+                    Date.valueOf(LocalDate.of(1980, 1, 1).plusDays(id)));
+        }
+    }
+
+    @Benchmark
+    public void filmRowMapper(Blackhole blackhole) throws SQLException {
+        filmRows.beforeFirst();
+        int rowNum = 0;
+        while (filmRows.next()) {
+            blackhole.consume(filmRowMapper.mapRow(filmRows, rowNum++));
+        }
+    }
+
+    @Benchmark
+    public void userRowMapper(Blackhole blackhole) throws SQLException {
+        userRows.beforeFirst();
+        int rowNum = 0;
+        while (userRows.next()) {
+            blackhole.consume(userRowMapper.mapRow(userRows, rowNum++));
+        }
+    }
+}
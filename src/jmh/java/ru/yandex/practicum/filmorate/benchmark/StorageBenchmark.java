@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение фильмов из {@link ru.yandex.practicum.filmorate.storage.film.FilmDbStorage}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Film> getAll(FilmorateState state) {
+        return state.filmStorage.getAll();
+    }
+
+    @Benchmark
+    public Optional<Film> getByIdCached(FilmorateState state) {
+        return state.filmStorage.getById(randomFilmId(state));
+    }
+
+    @Benchmark
+    public Optional<Film> getByIdUncached(FilmorateState state) {
+        int id = randomFilmId(state);
+        state.filmCache.invalidate(id);
+        return state.filmStorage.getById(id);
+    }
+
+    @Benchmark
+    public List<Film> loadGenresForFilms(FilmorateState state) {
+        int first = ThreadLocalRandom.current().nextInt(1, Math.max(2, state.films - PAGE_SIZE));
+        List<Film> page = new ArrayList<>(PAGE_SIZE);
+        for (int id = first; id < first + PAGE_SIZE; id++) {
+            Film film = new Film();
+            film.setId(id);
+            page.add(film);
+        }
+        state.filmStorage.loadGenresForFilms(page);
+        return page;
+    }
+
+    private static int randomFilmId(FilmorateState state) {
+        return ThreadLocalRandom.current().nextInt(1, state.films + 1);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Память, удерживаемая при выгрузке всех фильмов: {@code streamAll} против {@code getAll}.
+ * Каждые {@value #SAMPLE_EVERY} фильмов выполняется полная сборка мусора и снимается занятая
+ * куча; счётчик {@code retainedKb} — максимум за проход за вычетом кучи до него. При постраничной
+ * выгрузке он не должен расти с {@code films}, при {@code getAll} растёт линейно:
+ * <pre>
+ * -p films=10000,100000 StreamingBenchmark
+ * </pre>
+ * Время здесь вторично: его искажают принудительные сборки мусора.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-XX:+UseG1GC", "-XX:-ExplicitGCInvokesConcurrent"})
+public class StreamingBenchmark {
+    private static final int SAMPLE_EVERY = 5000;
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedKb;
+
+        private long baseline;
+        private long peak;
+        private int seen;
+
+        @Setup(Level.Invocation)
+        public void reset() {
+            baseline = usedAfterGc();
+            peak = baseline;
+            seen = 0;
+            retainedKb = 0;
+        }
+
+        void onFilm() {
+            if (++seen % SAMPLE_EVERY == 0) {
+                peak = Math.max(peak, usedAfterGc());
+            }
+        }
+
+        void finish() {
+            peak = Math.max(peak, usedAfterGc());
+            retainedKb = (peak - baseline) / 1024;
+        }
+
+        private static long usedAfterGc() {
+            System.gc();
+            return MEMORY.getHeapMemoryUsage().getUsed();
+        }
+    }
+
+    @Benchmark
+    public int streamAll(FilmorateState state, Heap heap) {
+        int[] count = new int[1];
+        state.filmStorage.streamAll(film -> {
+            count[0]++;
+            heap.onFilm();
+        });
+        heap.finish();
+        return count[0];
+    }
+
+    @Benchmark
+    public int getAll(FilmorateState state, Heap heap) {
+        List<Film> films = state.filmStorage.getAll();
+        for (Film ignored : films) {
+            heap.onFilm();
+        }
+        heap.finish();
+        return films.size();
+    }
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Пул соединений Hikari поверх H2. Размер пула и тайм-ауты задаются стандартными свойствами
+ * {@code spring.datasource.hikari.*}, настройки самой базы — {@link H2Properties}.
+ * Явно заданный {@code spring.datasource.url} имеет приоритет, и тогда {@link H2Properties} не применяются.
+ * <p>
+ * При {@code filmorate.datasource.gate.enabled} (по умолчанию включается вместе с виртуальными
+ * потоками, {@code spring.threads.virtual.enabled}) пул закрывается {@link GatedDataSource}
+ * на {@code gate.permits} одновременных соединений.
+ * <p>
+ * При {@code filmorate.sql.stats.enabled} (профили {@code dev} и {@code test}) внешним слоем ставится {@link SqlStatisticsDataSource}:
+ * учёт запросов на HTTP-запрос, журнал медленных запросов и проверка {@link QueryBudget}.
+ */
+@Configuration
+@EnableConfigurationProperties(H2Properties.class)
+public class DataSourceConfig {
+    private static final Logger log = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties,
+                                 H2Properties h2,
+                                 Environment environment,
+                                 @Value("${filmorate.datasource.gate.enabled:${spring.threads.virtual.enabled:false}}")
+                                 boolean gateEnabled,
+                                 @Value("${filmorate.datasource.gate.permits:${spring.datasource.hikari.maximum-pool-size:10}}")
+                                 int gatePermits,
+                                 @Value("${filmorate.datasource.gate.acquire-timeout-ms:5000}")
+                                 long gateAcquireTimeoutMs,
+                                 @Value("${filmorate.sql.stats.enabled:false}") boolean statsEnabled,
+                                 @Value("${filmorate.sql.slow-threshold-ms:100}") long slowThresholdMs,
+                                 @Value("${filmorate.sql.budget.enforce:false}") boolean enforceBudget) {
+        String url = properties.getUrl();
+        if (StringUtils.hasText(url)) {
+            log.info("Используется явно заданный URL базы, настройки filmorate.datasource не применяются");
+        } else {
+            url = h2.url();
+            log.info("База H2 в режиме {}: {}", h2.mode(), url);
+        }
+        HikariDataSource pool = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(url)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+
+        DataSource dataSource = pool;
+        if (gateEnabled) {
+            log.info("Одновременных обращений к базе не больше {}, ожидание до {} мс", gatePermits, gateAcquireTimeoutMs);
+            dataSource = new GatedDataSource(dataSource, gatePermits, gateAcquireTimeoutMs);
+        }
+        if (statsEnabled) {
+            log.info("Учёт SQL-запросов включён, медленные запросы от {} мс", slowThresholdMs);
+            dataSource = new SqlStatisticsDataSource(dataSource, slowThresholdMs, enforceBudget);
+        }
+        return dataSource;
+    }
+}
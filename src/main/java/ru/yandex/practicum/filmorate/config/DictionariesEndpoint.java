@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+
+import java.util.Map;
+
+/**
+ * Перечитывает справочники жанров и рейтингов MPA после их изменения в базе:
+ * {@code POST /actuator/dictionaries}. Миграции Flyway выполняются до старта, поэтому им это не нужно.
+ */
+@Component
+@Endpoint(id = "dictionaries")
+public class DictionariesEndpoint {
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+
+    @Autowired
+    public DictionariesEndpoint(GenreDbStorage genreStorage, MpaDbStorage mpaStorage) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> reload() {
+        genreStorage.reload();
+        mpaStorage.reload();
+        return Map.of("genres", genreStorage.getAllGenres().size(),
+                "mpa", mpaStorage.getAllMpaRatings().size());
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Настройки встроенной базы H2 ({@code filmorate.datasource.*}), из которых собирается URL подключения.
+ * <p>
+ * {@code MEMORY} — база в памяти, живущая до остановки приложения; {@code FILE} — база в файле
+ * {@code file}, которую переживают перезапуски. Размер кэша страниц и параметры MVStore
+ * (задержка записи, время хранения старых версий, время сжатия при закрытии) имеют смысл
+ * только для файловой базы. {@code query-cache-size} — число разобранных запросов,
+ * которые H2 хранит на каждое соединение пула, то есть кэш подготовленных выражений.
+ */
+@ConfigurationProperties(prefix = "filmorate.datasource")
+public record H2Properties(
+        @DefaultValue("MEMORY") Mode mode,
+        @DefaultValue("filmorate") String name,
+        @DefaultValue("./data/filmorate") String file,
+        @DefaultValue("65536") int cacheSizeKb,
+        @DefaultValue("3") int lockMode,
+        @DefaultValue("10000") int lockTimeoutMs,
+        @DefaultValue("64") int queryCacheSize,
+        @DefaultValue("500") int writeDelayMs,
+        @DefaultValue("45000") int retentionTimeMs,
+        @DefaultValue("200") int maxCompactTimeMs) {
+
+    public enum Mode {
+        MEMORY,
+        FILE
+    }
+
+    public String url() {
+        StringBuilder url = new StringBuilder("jdbc:h2:");
+        if (mode == Mode.FILE) {
+            url.append("file:").append(file)
+                    .append(";DB_CLOSE_ON_EXIT=FALSE")
+                    .append(";CACHE_SIZE=").append(cacheSizeKb)
+                    .append(";WRITE_DELAY=").append(writeDelayMs)
+                    .append(";RETENTION_TIME=").append(retentionTimeMs)
+                    .append(";MAX_COMPACT_TIME=").append(maxCompactTimeMs);
+        } else {
+            // Без DB_CLOSE_DELAY база в памяти пропадёт, когда пул закроет последнее соединение
+            url.append("mem:").append(name).append(";DB_CLOSE_DELAY=-1");
+        }
+        return url.append(";LOCK_MODE=").append(lockMode)
+                .append(";LOCK_TIMEOUT=").append(lockTimeoutMs)
+                .append(";QUERY_CACHE_SIZE=").append(queryCacheSize)
+                .toString();
+    }
+}
@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+import org.zalando.logbook.core.Conditions;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+/**
+ * Какие HTTP-запросы попадают в журнал Logbook. Запросы к путям из {@code filmorate.logbook.exclude}
+ * (шаблоны {@code *} и {@code **}) не журналируются никогда, из остальных в журнал попадает доля
+ * {@code filmorate.logbook.sample-rate}. Для отброшенных запросов Logbook не буферизует тело,
+ * поэтому горячие пути не платят ни за копирование, ни за форматирование.
+ * <p>
+ * Размер тела в записи ограничивает {@code logbook.write.max-body-size}. Сам журнал пишется на уровне
+ * TRACE в логгер {@code org.zalando.logbook.Logbook} и по умолчанию выключен.
+ * Бин заменяет условие из {@code logbook.predicate.*}.
+ */
+@Configuration
+public class LogbookConfig {
+
+    @Bean
+    public Predicate<HttpRequest> requestCondition(
+            @Value("${filmorate.logbook.exclude:}") List<String> excludedPaths,
+            @Value("${filmorate.logbook.sample-rate:1.0}") double sampleRate) {
+        Predicate<HttpRequest> condition = Conditions.exclude(excludedPaths.stream()
+                .map(Conditions::<HttpRequest>requestTo)
+                .toList());
+        if (sampleRate >= 1.0) {
+            return condition;
+        }
+        return condition.and(request -> ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+}
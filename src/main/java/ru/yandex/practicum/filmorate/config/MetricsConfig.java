@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Таймеры методов хранилищ, помеченных {@link io.micrometer.core.annotation.Timed}: метрика
+ * {@code filmorate.storage} с тегами {@code class} и {@code method}. Запросы к контроллерам
+ * измеряет сам Spring Boot ({@code http.server.requests}), пул соединений — Hikari
+ * ({@code hikaricp.connections.acquire}). Всё доступно через {@code /actuator/metrics}.
+ * <p>
+ * При {@code filmorate.metrics.enabled=false} аспект не создаётся и хранилища вызываются напрямую,
+ * а {@code management.metrics.enable.filmorate=false} отключает и остальные метрики приложения.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.metrics.enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry registry) {
+        return new TimedAspect(registry);
+    }
+}
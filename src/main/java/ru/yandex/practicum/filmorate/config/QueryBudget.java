@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Наибольшее число SQL-запросов, которое обработчик может выполнить за один HTTP-запрос.
+ * Превышение записывается в журнал, а при {@code filmorate.sql.budget.enforce=true}
+ * запрос сверх бюджета не выполняется и завершается ошибкой.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    int value();
+}
@@ -0,0 +1,69 @@
+package ru.yandex.practicum.filmorate.config;
+
+/**
+ * Счётчик SQL-запросов текущего HTTP-запроса: число выполненных запросов и суммарное время в базе.
+ * Привязывается к потоку на время обработки запроса; запросы из фоновых потоков не учитываются.
+ */
+public final class SqlStatistics {
+    public static final int NO_BUDGET = -1;
+
+    private static final ThreadLocal<SqlStatistics> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final int budget;
+    private int statements;
+    private long nanos;
+
+    private SqlStatistics(String name, int budget) {
+        this.name = name;
+        this.budget = budget;
+    }
+
+    public static SqlStatistics begin(String name, int budget) {
+        SqlStatistics statistics = new SqlStatistics(name, budget);
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    public static SqlStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static SqlStatistics end() {
+        SqlStatistics statistics = CURRENT.get();
+        CURRENT.remove();
+        return statistics;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+
+    public int getStatements() {
+        return statements;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public double getMillis() {
+        return nanos / 1_000_000.0;
+    }
+
+    /**
+     * Учитывает очередной запрос и возвращает {@code true}, если он выходит за бюджет.
+     */
+    boolean countStatement() {
+        statements++;
+        return budget != NO_BUDGET && statements > budget;
+    }
+
+    void addTime(long elapsedNanos) {
+        nanos += elapsedNanos;
+    }
+}
@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Учитывает каждый выполненный SQL-запрос в {@link SqlStatistics} текущего HTTP-запроса
+ * и пишет в журнал запросы дольше {@code slowThresholdMs} вместе с параметрами и планом {@code EXPLAIN}.
+ * <p>
+ * Если у обработчика задан {@link QueryBudget} и включён {@code enforceBudget}, запрос сверх бюджета
+ * не выполняется, а бросается {@link IllegalStateException}; без {@code enforceBudget} превышение
+ * только записывается в журнал. Такой режим предназначен для тестов и ловит появление N+1.
+ */
+public class SqlStatisticsDataSource extends DelegatingDataSource implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(SqlStatisticsDataSource.class);
+    private static final Set<String> EXECUTE_METHODS = Set.of(
+            "execute", "executeQuery", "executeUpdate", "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    private final long slowThresholdNanos;
+    private final boolean enforceBudget;
+
+    public SqlStatisticsDataSource(DataSource target, long slowThresholdMs, boolean enforceBudget) {
+        super(target);
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMs);
+        this.enforceBudget = enforceBudget;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (obtainTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> statement(Statement.class, (Statement) result, null, connection);
+                case "prepareStatement" ->
+                        statement(PreparedStatement.class, (Statement) result, (String) args[0], connection);
+                case "prepareCall" -> statement(CallableStatement.class, (Statement) result, (String) args[0], connection);
+                default -> result;
+            };
+        });
+    }
+
+    private <T extends Statement> T statement(Class<T> type, Statement statement, String preparedSql,
+                                              Connection connection) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return proxy(type, statement, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            }
+            if (!EXECUTE_METHODS.contains(name)) {
+                return invoke(statement, method, args);
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            SqlStatistics statistics = SqlStatistics.current();
+            if (statistics != null && statistics.countStatement()) {
+                overBudget(statistics, sql);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (statistics != null) {
+                    statistics.addTime(elapsed);
+                }
+                if (elapsed >= slowThresholdNanos) {
+                    logSlow(connection, sql, parameters, elapsed);
+                }
+            }
+        });
+    }
+
+    private void overBudget(SqlStatistics statistics, String sql) {
+        String message = String.format("%s выполнил %d запросов к базе при бюджете %d, лишний запрос: %s",
+                statistics.getName(), statistics.getStatements(), statistics.getBudget(), sql);
+        if (enforceBudget) {
+            throw new IllegalStateException(message);
+        }
+        log.warn(message);
+    }
+
+    private void logSlow(Connection connection, String sql, Map<Integer, Object> parameters, long elapsedNanos) {
+        log.warn("Медленный запрос {} мс: {} параметры {}\n{}",
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), sql, parameters.values(), explain(connection, sql, parameters));
+    }
+
+    private static String explain(Connection connection, String sql, Map<Integer, Object> parameters) {
+        if (sql == null) {
+            return "План недоступен";
+        }
+        // Выполняется на исходном соединении, поэтому сам EXPLAIN не учитывается в статистике
+        try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                explain.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet rs = explain.executeQuery()) {
+                return rs.next() ? rs.getString(1) : "План недоступен";
+            }
+        } catch (SQLException e) {
+            return "План недоступен: " + e.getMessage();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("equals") && method.getParameterCount() == 1) {
+                        return proxy == args[0];
+                    }
+                    if (method.getName().equals("hashCode") && method.getParameterCount() == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    return handler.invoke(proxy, method, args);
+                }));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
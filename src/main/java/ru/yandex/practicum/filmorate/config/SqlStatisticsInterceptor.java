@@ -0,0 +1,111 @@
+package ru.yandex.practicum.filmorate.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.Locale;
+
+/**
+ * Открывает {@link SqlStatistics} на время обработки HTTP-запроса с бюджетом из {@link QueryBudget}
+ * обработчика. Перед записью тела ответа (или после обработчика, если тела нет) добавляет заголовки
+ * {@value #STATEMENTS_HEADER} и {@value #TIME_HEADER} (при {@code filmorate.sql.stats.headers=true}),
+ * а по завершении пишет итог в отладочный журнал.
+ * <p>
+ * Включается свойством {@code filmorate.sql.stats.enabled}: по умолчанию выключено и включено
+ * в профилях {@code dev} и {@code test}, чтобы в рабочем режиме запросы не шли через прокси,
+ * а клиенты не видели число запросов к базе.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "filmorate.sql.stats.enabled", havingValue = "true")
+public class SqlStatisticsInterceptor implements AsyncHandlerInterceptor, ResponseBodyAdvice<Object>, WebMvcConfigurer {
+    public static final String STATEMENTS_HEADER = "X-Sql-Statements";
+    public static final String TIME_HEADER = "X-Sql-Time-Ms";
+
+    private static final Logger log = LoggerFactory.getLogger(SqlStatisticsInterceptor.class);
+
+    private final boolean headers;
+
+    public SqlStatisticsInterceptor(@Value("${filmorate.sql.stats.headers:false}") boolean headers) {
+        this.headers = headers;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            QueryBudget budget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+            SqlStatistics.begin(handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName(),
+                    budget == null ? SqlStatistics.NO_BUDGET : budget.value());
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        // Ответы без тела не проходят через beforeBodyWrite
+        SqlStatistics statistics = SqlStatistics.current();
+        if (headers && statistics != null && !response.isCommitted() && !response.containsHeader(STATEMENTS_HEADER)) {
+            response.setHeader(STATEMENTS_HEADER, Integer.toString(statistics.getStatements()));
+            response.setHeader(TIME_HEADER, millis(statistics));
+        }
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return headers;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        SqlStatistics statistics = SqlStatistics.current();
+        if (statistics != null) {
+            response.getHeaders().set(STATEMENTS_HEADER, Integer.toString(statistics.getStatements()));
+            response.getHeaders().set(TIME_HEADER, millis(statistics));
+        }
+        return body;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        // Потоковые ответы дописываются в другом потоке, здесь счётчик только отвязывается
+        SqlStatistics.end();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        SqlStatistics statistics = SqlStatistics.end();
+        if (statistics != null) {
+            log.debug("{} {}: {} запросов к базе, {} мс", request.getMethod(), request.getRequestURI(),
+                    statistics.getStatements(), millis(statistics));
+        }
+    }
+
+    private static String millis(SqlStatistics statistics) {
+        return String.format(Locale.ROOT, "%.3f", statistics.getMillis());
+    }
+}
@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 public abstract class BaseController<T> {
+    protected static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
 
     protected ResponseEntity<Object> createErrorResponse(String message, HttpStatus status) {
         Map<String, String> errorResponse = new HashMap<>();
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Slf4j
+@RestController
+public class BulkImportController {
+    private final BulkImportService bulkImportService;
+
+    public BulkImportController(BulkImportService bulkImportService) {
+        this.bulkImportService = bulkImportService;
+    }
+
+    @PostMapping(path = "/films/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importFilms(InputStream body) throws IOException {
+        log.info("Получен запрос на пакетную загрузку фильмов (JSON)");
+        return bulkImportService.importFilms(body, false);
+    }
+
+    @PostMapping(path = "/films/bulk", consumes = BaseController.NDJSON_MEDIA_TYPE)
+    public BulkImportResult importFilmsNdjson(InputStream body) throws IOException {
+        log.info("Получен запрос на пакетную загрузку фильмов (NDJSON)");
+        return bulkImportService.importFilms(body, true);
+    }
+
+    @PostMapping(path = "/users/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkImportResult importUsers(InputStream body) throws IOException {
+        log.info("Получен запрос на пакетную загрузку пользователей (JSON)");
+        return bulkImportService.importUsers(body, false);
+    }
+
+    @PostMapping(path = "/users/bulk", consumes = BaseController.NDJSON_MEDIA_TYPE)
+    public BulkImportResult importUsersNdjson(InputStream body) throws IOException {
+        log.info("Получен запрос на пакетную загрузку пользователей (NDJSON)");
+        return bulkImportService.importUsers(body, true);
+    }
+}
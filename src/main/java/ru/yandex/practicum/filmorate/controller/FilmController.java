@@ -1,14 +1,20 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import ru.yandex.practicum.filmorate.config.QueryBudget;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.time.LocalDate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -17,10 +23,11 @@ import java.util.Map;
 @RequestMapping("/films")
 public class FilmController extends BaseController<Film> {
     private final FilmService filmService;
-    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+    private final ObjectMapper objectMapper;
 
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -35,8 +42,32 @@ public class FilmController extends BaseController<Film> {
 
     @GetMapping
     public List<Film> getAllFilms() {
-        log.info("Получен запрос на получение всех фильмов. Количество фильмов: {}", filmService.getAllFilms().size());
-        return filmService.getAllFilms();
+        List<Film> films = filmService.getAllFilms();
+        log.info("Получен запрос на получение всех фильмов. Количество фильмов: {}", films.size());
+        return films;
+    }
+
+    @GetMapping(params = "limit")
+    public List<Film> getFilmsPage(@RequestParam(name = "afterId", defaultValue = "0") int afterId,
+                                @RequestParam(name = "limit") int limit) {
+        log.info("Получен запрос на получение фильмов после id {} (лимит {})", afterId, limit);
+        return filmService.getFilmsPage(afterId, limit);
+    }
+
+    @GetMapping(produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamFilms() {
+        log.info("Получен запрос на потоковую выгрузку всех фильмов");
+        StreamingResponseBody body = outputStream -> filmService.streamAllFilms(film -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(film));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -51,6 +82,7 @@ public class FilmController extends BaseController<Film> {
     }
 
     @PutMapping("/{id}/like/{userId}")
+    @QueryBudget(2)
     public ResponseEntity<Object> addLike(@PathVariable int id, @PathVariable int userId) {
         try {
             filmService.addLike(id, userId);
@@ -67,6 +99,7 @@ public class FilmController extends BaseController<Film> {
     }
 
     @DeleteMapping("/{id}/like/{userId}")
+    @QueryBudget(2)
     public ResponseEntity<Object> removeLike(@PathVariable int id, @PathVariable int userId) {
         try {
             filmService.removeLike(id, userId);
@@ -79,18 +112,36 @@ public class FilmController extends BaseController<Film> {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") int count) {
-        log.info("Получен запрос на получение {} популярных фильмов", count);
-        return filmService.getPopularFilms(count);
+    @QueryBudget(2)
+    public List<Film> getPopularFilms(@RequestParam(name = "count", defaultValue = "10") int count,
+                                      @RequestParam(name = "genreId", required = false) Integer genreId,
+                                      @RequestParam(name = "year", required = false) Integer year) {
+        log.info("Получен запрос на получение {} популярных фильмов (жанр: {}, год: {})", count, genreId, year);
+        return filmService.getPopularFilms(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Object> searchFilms(@RequestParam(name = "query") String query,
+                                              @RequestParam(name = "by", defaultValue = "title,description") List<String> by,
+                                              @RequestParam(name = "count", defaultValue = "10") int count) {
+        try {
+            List<Film> films = filmService.searchFilms(query, by, count);
+            log.info("Получен запрос на поиск фильмов '{}'. Найдено фильмов: {}", query, films.size());
+            return ResponseEntity.ok(films);
+        } catch (ValidationException e) {
+            log.warn("Ошибка валидации при поиске фильмов: {}", e.getMessage());
+            return createErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
     }
 
     @Override
     protected ResponseEntity<Object> addEntity(Film film) {
-        log.info("Получен запрос на добавление фильма: {}", film);
+        log.info("Получен запрос на добавление фильма '{}'", film.getName());
+        log.debug("Добавляемый фильм: {}", film);
         try {
             validateEntity(film);
             Film createdFilm = filmService.createFilm(film);
-            log.info("Фильм успешно добавлен: {}", createdFilm);
+            log.info("Фильм успешно добавлен (id: {})", createdFilm.getId());
             return ResponseEntity.ok(createdFilm);
         } catch (ValidationException e) {
             log.warn("Ошибка валидации при добавлении фильма: {}", e.getMessage());
@@ -100,20 +151,21 @@ public class FilmController extends BaseController<Film> {
 
     @Override
     protected ResponseEntity<Object> updateEntity(Film film) {
-        log.info("Получен запрос на обновление фильма: {}", film);
+        log.info("Получен запрос на обновление фильма с id {}", film.getId());
+        log.debug("Обновляемый фильм: {}", film);
 
         validateEntity(film);
 
         Film updatedFilm = filmService.updateFilm(film);
-        log.info("Фильм успешно обновлен: {}", updatedFilm);
+        log.info("Фильм успешно обновлен (id: {})", updatedFilm.getId());
         return ResponseEntity.ok(updatedFilm);
     }
 
     @Override
     protected void validateEntity(Film film) throws ValidationException {
-        if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
+        if (film.getReleaseDate().isBefore(FilmService.MIN_RELEASE_DATE)) {
             log.error("Ошибка валидации: дата релиза {} раньше минимальной допустимой даты {}",
-                    film.getReleaseDate(), MIN_RELEASE_DATE);
+                    film.getReleaseDate(), FilmService.MIN_RELEASE_DATE);
             throw new ValidationException("Дата релиза не может быть раньше 28 декабря 1895 года");
         }
     }
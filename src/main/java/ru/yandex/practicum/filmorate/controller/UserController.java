@@ -1,13 +1,22 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import ru.yandex.practicum.filmorate.config.QueryBudget;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -15,9 +24,13 @@ import java.util.List;
 @RequestMapping("/users")
 public class UserController extends BaseController<User> {
     private final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, FilmService filmService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -32,8 +45,32 @@ public class UserController extends BaseController<User> {
 
     @GetMapping
     public List<User> getAllUsers() {
-        log.info("Получен запрос на получение всех пользователей. Количество пользователей: {}", userService.getAllUsers().size());
-        return userService.getAllUsers();
+        List<User> users = userService.getAllUsers();
+        log.info("Получен запрос на получение всех пользователей. Количество пользователей: {}", users.size());
+        return users;
+    }
+
+    @GetMapping(params = "limit")
+    public List<User> getUsersPage(@RequestParam(name = "afterId", defaultValue = "0") int afterId,
+                                @RequestParam(name = "limit") int limit) {
+        log.info("Получен запрос на получение пользователей после id {} (лимит {})", afterId, limit);
+        return userService.getUsersPage(afterId, limit);
+    }
+
+    @GetMapping(produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamUsers() {
+        log.info("Получен запрос на потоковую выгрузку всех пользователей");
+        StreamingResponseBody body = outputStream -> userService.streamAllUsers(user -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(user));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(body);
     }
 
     @GetMapping("/{id}")
@@ -85,7 +122,42 @@ public class UserController extends BaseController<User> {
         }
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public ResponseEntity<Object> getFriendSuggestions(@PathVariable int id,
+                                                       @RequestParam(name = "limit", defaultValue = "10") int limit) {
+        try {
+            List<User> suggestions = userService.getFriendSuggestions(id, limit);
+            log.info("Получен запрос на рекомендации друзей для пользователя {}. Количество рекомендаций: {}",
+                    id, suggestions.size());
+            return ResponseEntity.ok(suggestions);
+        } catch (ValidationException e) {
+            log.warn("Ошибка валидации при получении рекомендаций друзей: {}", e.getMessage());
+            return createErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            log.error("Пользователь с id {} не найден", id);
+            return createErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public ResponseEntity<Object> getRecommendations(@PathVariable int id,
+                                                     @RequestParam(name = "count", defaultValue = "10") int count) {
+        try {
+            List<Film> films = filmService.getRecommendations(id, count);
+            log.info("Получен запрос на рекомендации фильмов для пользователя {}. Количество рекомендаций: {}",
+                    id, films.size());
+            return ResponseEntity.ok(films);
+        } catch (ValidationException e) {
+            log.warn("Ошибка валидации при получении рекомендаций фильмов: {}", e.getMessage());
+            return createErrorResponse(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IllegalArgumentException e) {
+            log.error("Пользователь с id {} не найден", id);
+            return createErrorResponse(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
     @GetMapping("/{id}/friends/common/{otherId}")
+    @QueryBudget(1)
     public ResponseEntity<Object> getCommonFriends(@PathVariable int id, @PathVariable int otherId) {
         try {
             List<User> commonFriends = userService.getCommonFriends(id, otherId);
@@ -100,12 +172,13 @@ public class UserController extends BaseController<User> {
 
     @Override
     protected ResponseEntity<Object> addEntity(User user) {
-        log.info("Получен запрос на создание пользователя: {}", user);
+        log.info("Получен запрос на создание пользователя '{}'", user.getLogin());
+        log.debug("Создаваемый пользователь: {}", user);
         try {
             validateEntity(user);
             processUserName(user);
             User createdUser = userService.createUser(user);
-            log.info("Пользователь успешно создан: {}", createdUser);
+            log.info("Пользователь успешно создан (id: {})", createdUser.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
         } catch (ValidationException e) {
             log.warn("Ошибка валидации при создании пользователя: {}", e.getMessage());
@@ -115,7 +188,8 @@ public class UserController extends BaseController<User> {
 
     @Override
     protected ResponseEntity<Object> updateEntity(User user) {
-        log.info("Получен запрос на обновление пользователя: {}", user);
+        log.info("Получен запрос на обновление пользователя с id {}", user.getId());
+        log.debug("Обновляемый пользователь: {}", user);
         try {
             validateEntity(user);
             processUserName(user);
@@ -126,7 +200,7 @@ public class UserController extends BaseController<User> {
             }
 
             User updatedUser = userService.updateUser(user);
-            log.info("Пользователь успешно обновлен: {}", updatedUser);
+            log.info("Пользователь успешно обновлен (id: {})", updatedUser.getId());
             return ResponseEntity.ok(updatedUser);
         } catch (ValidationException e) {
             log.warn("Ошибка валидации при обновлении пользователя: {}", e.getMessage());
@@ -1,16 +1,22 @@
 package ru.yandex.practicum.filmorate.exception;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import jakarta.validation.ConstraintViolationException;
+import java.sql.SQLException;
 import java.util.Map;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
+    // SQLSTATE нарушения внешнего ключа, когда родительской записи нет
+    private static final String PARENT_MISSING_SQL_STATE = "23506";
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, String>> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -41,6 +47,42 @@ public class GlobalExceptionHandler {
                 .body(Map.of("error", e.getMessage()));
     }
 
+    @ExceptionHandler(OverloadException.class)
+    public ResponseEntity<Map<String, String>> handleOverload(OverloadException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(CannotGetJdbcConnectionException.class)
+    public ResponseEntity<Map<String, String>> handleNoConnection(CannotGetJdbcConnectionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", "База данных перегружена, повторите запрос позже"));
+    }
+
+    /**
+     * Занятые логин или почта при создании и обновлении пользователя: их отклоняет
+     * {@code UserDbStorage} по кэшу пользователей или ограничение UNIQUE в базе.
+     */
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Map<String, String>> handleDuplicateKey(DuplicateKeyException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Логин или электронная почта уже заняты"));
+    }
+
+    /**
+     * Лайк несуществующему фильму или от несуществующего пользователя отклоняет внешний ключ таблицы likes.
+     * Остальные нарушения целостности — ошибка сервера, как и прочие исключения.
+     */
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    public ResponseEntity<Map<String, String>> handleDataIntegrityViolation(DataIntegrityViolationException e) {
+        if (e.getMostSpecificCause() instanceof SQLException sqlException
+                && PARENT_MISSING_SQL_STATE.equals(sqlException.getSQLState())) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Связанный объект не найден"));
+        }
+        return handleException(e);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleException(Exception e) {
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
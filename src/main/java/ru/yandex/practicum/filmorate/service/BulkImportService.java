@@ -0,0 +1,291 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+@Service
+public class BulkImportService {
+    private static final Logger log = LoggerFactory.getLogger(BulkImportService.class);
+
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int batchSize;
+
+    @Autowired
+    public BulkImportService(FilmStorage filmStorage,
+                             UserStorage userStorage,
+                             GenreDbStorage genreStorage,
+                             MpaDbStorage mpaStorage,
+                             FilmPopularityIndex popularityIndex,
+                             ObjectMapper objectMapper,
+                             Validator validator,
+                             @Value("${filmorate.bulk.batch-size:500}") int batchSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.popularityIndex = popularityIndex;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public BulkImportResult importFilms(InputStream body, boolean ndjson) throws IOException {
+        log.debug("Пакетная загрузка фильмов (NDJSON: {})", ndjson);
+        BulkImportResult result = importRows(body, ndjson, Film.class, new RowImporter<>() {
+            @Override
+            String validate(Film film) {
+                return validateFilm(film);
+            }
+
+            @Override
+            void insertAll(List<Film> films) {
+                filmStorage.createAll(films);
+            }
+
+            @Override
+            void insert(Film film) {
+                filmStorage.create(film);
+            }
+
+            @Override
+            int afterInsert(Film film) {
+                popularityIndex.register(film);
+                return film.getId();
+            }
+        });
+        log.info("Пакетная загрузка фильмов завершена: получено {}, загружено {}, ошибок {}",
+                result.getReceived(), result.getImported(), result.getErrors().size());
+        return result;
+    }
+
+    public BulkImportResult importUsers(InputStream body, boolean ndjson) throws IOException {
+        log.debug("Пакетная загрузка пользователей (NDJSON: {})", ndjson);
+        Set<String> emails = new HashSet<>();
+        Set<String> logins = new HashSet<>();
+        BulkImportResult result = importRows(body, ndjson, User.class, new RowImporter<>() {
+            @Override
+            String validate(User user) {
+                String error = validateUser(user);
+                if (error != null) {
+                    return error;
+                }
+                if (!emails.add(user.getEmail())) {
+                    return "Пользователь с email " + user.getEmail() + " уже есть в загрузке";
+                }
+                if (!logins.add(user.getLogin())) {
+                    return "Пользователь с логином " + user.getLogin() + " уже есть в загрузке";
+                }
+                return null;
+            }
+
+            @Override
+            void insertAll(List<User> users) {
+                userStorage.createAll(users);
+            }
+
+            @Override
+            void insert(User user) {
+                userStorage.create(user);
+            }
+
+            @Override
+            int afterInsert(User user) {
+                return user.getId();
+            }
+        });
+        log.info("Пакетная загрузка пользователей завершена: получено {}, загружено {}, ошибок {}",
+                result.getReceived(), result.getImported(), result.getErrors().size());
+        return result;
+    }
+
+    private String validateFilm(Film film) {
+        String violation = firstViolation(film);
+        if (violation != null) {
+            return violation;
+        }
+        if (film.getReleaseDate().isBefore(FilmService.MIN_RELEASE_DATE)) {
+            return "Дата релиза не может быть раньше 28 декабря 1895 года";
+        }
+        if (film.getMpa() != null && film.getMpa().getId() > 0) {
+            Optional<MpaRating> mpa = mpaStorage.getMpaRatingById(film.getMpa().getId());
+            if (mpa.isEmpty()) {
+                return "Рейтинг MPA с id " + film.getMpa().getId() + " не найден";
+            }
+            film.setMpa(mpa.get());
+        }
+        if (film.getGenres() != null) {
+            for (Genre genre : film.getGenres()) {
+                if (genreStorage.getGenreById(genre.getId()).isEmpty()) {
+                    return "Жанр с id " + genre.getId() + " не найден";
+                }
+            }
+        }
+        return null;
+    }
+
+    private String validateUser(User user) {
+        String violation = firstViolation(user);
+        if (violation != null) {
+            return violation;
+        }
+        if (user.getName() == null || user.getName().isBlank()) {
+            user.setName(user.getLogin());
+        }
+        return null;
+    }
+
+    private <T> String firstViolation(T entity) {
+        Set<ConstraintViolation<T>> violations = validator.validate(entity);
+        return violations.isEmpty() ? null : violations.iterator().next().getMessage();
+    }
+
+    private <T> BulkImportResult importRows(InputStream body, boolean ndjson, Class<T> type,
+                                            RowImporter<T> importer) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        List<T> batch = new ArrayList<>(batchSize);
+        List<Integer> batchRows = new ArrayList<>(batchSize);
+
+        RowConsumer<T> consumer = (row, entity, parseError) -> {
+            result.setReceived(result.getReceived() + 1);
+            result.getIds().add(null);
+
+            String error = parseError != null ? parseError : importer.validate(entity);
+            if (error != null) {
+                result.getErrors().add(new BulkImportResult.RowError(row, error));
+                return;
+            }
+
+            batch.add(entity);
+            batchRows.add(row);
+            if (batch.size() >= batchSize) {
+                flush(batch, batchRows, importer, result);
+            }
+        };
+
+        if (ndjson) {
+            readNdjson(body, type, consumer);
+        } else {
+            readJsonArray(body, type, consumer);
+        }
+        flush(batch, batchRows, importer, result);
+        return result;
+    }
+
+    private <T> void flush(List<T> batch, List<Integer> batchRows, RowImporter<T> importer, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            importer.insertAll(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                result.getIds().set(batchRows.get(i), importer.afterInsert(batch.get(i)));
+            }
+            result.setImported(result.getImported() + batch.size());
+        } catch (DataIntegrityViolationException e) {
+            // insertAll — отдельная транзакция, и пакет откатан целиком: сохраняем строки по одной,
+            // каждую в своей транзакции, чтобы найти конкретные ошибки
+            log.warn("Пакет из {} строк отклонён базой данных, повтор по одной строке", batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                try {
+                    importer.insert(batch.get(i));
+                    result.getIds().set(batchRows.get(i), importer.afterInsert(batch.get(i)));
+                    result.setImported(result.getImported() + 1);
+                } catch (DataIntegrityViolationException rowException) {
+                    result.getErrors().add(new BulkImportResult.RowError(batchRows.get(i),
+                            "Строка нарушает ограничения целостности данных"));
+                }
+            }
+        }
+
+        batch.clear();
+        batchRows.clear();
+    }
+
+    private <T> void readNdjson(InputStream body, Class<T> type, RowConsumer<T> consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                consumer.accept(row, objectMapper.readValue(line, type), null);
+            } catch (JsonProcessingException e) {
+                consumer.accept(row, null, "Некорректный JSON: " + e.getOriginalMessage());
+            }
+            row++;
+        }
+    }
+
+    private <T> void readJsonArray(InputStream body, Class<T> type, RowConsumer<T> consumer) throws IOException {
+        int row = 0;
+        try (MappingIterator<T> iterator = objectMapper.readerFor(type).readValues(body)) {
+            while (iterator.hasNextValue()) {
+                try {
+                    consumer.accept(row, iterator.nextValue(), null);
+                } catch (JsonParseException e) {
+                    // После синтаксической ошибки продолжить разбор массива нельзя
+                    consumer.accept(row, null, "Некорректный JSON: " + e.getOriginalMessage());
+                    return;
+                } catch (JsonProcessingException e) {
+                    consumer.accept(row, null, "Некорректный JSON: " + e.getOriginalMessage());
+                }
+                row++;
+            }
+        }
+    }
+
+    private abstract static class RowImporter<T> {
+        abstract String validate(T entity);
+
+        abstract void insertAll(List<T> entities);
+
+        abstract void insert(T entity);
+
+        abstract int afterInsert(T entity);
+    }
+
+    @FunctionalInterface
+    private interface RowConsumer<T> {
+        void accept(int row, T entity, String parseError);
+    }
+}
@@ -3,38 +3,68 @@ package ru.yandex.practicum.filmorate.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
-import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBehindBuffer;
 import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserCache;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 @Service
 public class FilmService {
+    public static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
     private final FilmStorage filmStorage;
     private final UserService userService;
     private final MpaDbStorage mpaStorage;
     private final GenreDbStorage genreStorage;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmLikesIndex likesIndex;
+    private final FilmSearchIndex searchIndex;
+    private final LikeWriteBehindBuffer likeBuffer;
+    private final UserCache userCache;
+    /**
+     * Лайки меняют базу и индексы под общей блокировкой, а пересчёт счётчиков берёт её монопольно:
+     * лайк, записанный между чтением базы и заменой индексов, иначе потерялся бы или учёлся дважды.
+     */
+    private final ReadWriteLock likesLock = new ReentrantReadWriteLock();
     private static final Logger log = LoggerFactory.getLogger(FilmService.class);
-    private final JdbcTemplate jdbcTemplate;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     @Autowired
     public FilmService(FilmStorage filmStorage,
                        UserService userService,
                        MpaDbStorage mpaStorage,
                        GenreDbStorage genreStorage,
-                       JdbcTemplate jdbcTemplate) {
+                       FilmPopularityIndex popularityIndex,
+                       FilmLikesIndex likesIndex,
+                       FilmSearchIndex searchIndex,
+                       LikeWriteBehindBuffer likeBuffer,
+                       UserCache userCache) {
         this.filmStorage = filmStorage;
         this.userService = userService;
         this.mpaStorage = mpaStorage;
         this.genreStorage = genreStorage;
-        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.likesIndex = likesIndex;
+        this.searchIndex = searchIndex;
+        this.likeBuffer = likeBuffer;
+        this.userCache = userCache;
     }
 
     public List<Film> getAllFilms() {
@@ -44,6 +74,19 @@ public class FilmService {
         return films;
     }
 
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        log.debug("Получение страницы фильмов после id {} (лимит {})", afterId, limit);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return filmStorage.getPage(afterId, limit);
+    }
+
+    public void streamAllFilms(Consumer<Film> consumer) {
+        log.debug("Потоковая выгрузка всех фильмов");
+        filmStorage.streamAll(consumer);
+    }
+
     public Film getFilmById(int id) {
         log.debug("Поиск фильма с id {}", id);
         Film film = filmStorage.getById(id)
@@ -72,6 +115,7 @@ public class FilmService {
         }
 
         Film createdFilm = filmStorage.create(film);
+        popularityIndex.register(createdFilm);
         log.info("Создан новый фильм: '{}' (id: {})", createdFilm.getName(), createdFilm.getId());
         return createdFilm;
     }
@@ -89,66 +133,184 @@ public class FilmService {
         }
 
         Film updatedFilm = filmStorage.update(film);
+        popularityIndex.update(updatedFilm);
         log.info("Фильм '{}' (id: {}) обновлен", updatedFilm.getName(), updatedFilm.getId());
         return updatedFilm;
     }
 
+    public void deleteFilm(int id) {
+        log.debug("Удаление фильма с id {}", id);
+        getFilmById(id);
+        filmStorage.delete(id);
+        AfterCommit.run(() -> {
+            popularityIndex.remove(id);
+            likesIndex.removeFilm(id);
+        });
+        log.info("Фильм с id {} удален", id);
+    }
+
+    /**
+     * Как и likes_count в базе, рейтинг теряет лайки удалённого пользователя.
+     */
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        AfterCommit.run(() -> {
+            likesLock.readLock().lock();
+            try {
+                for (int filmId : likesIndex.removeUser(event.userId())) {
+                    if (popularityIndex.contains(filmId)) {
+                        popularityIndex.decrement(filmId);
+                    }
+                }
+            } finally {
+                likesLock.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Существование фильма и пользователя проверяет внешний ключ таблицы likes:
+     * нарушение ограничения превращается в 404 в {@link ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler}.
+     * В режиме отложенной записи лайк сразу применяется к индексам в памяти, а в базу попадает позже.
+     */
     public void addLike(int filmId, int userId) {
         log.debug("Добавление лайка: пользователь {} ставит лайк фильму {}", userId, filmId);
 
-        userService.getUserById(userId);
-        getFilmById(filmId);
-
-        if (filmStorage instanceof FilmDbStorage) {
-            FilmDbStorage filmDbStorage = (FilmDbStorage) filmStorage;
-            filmDbStorage.addLike(filmId, userId);
+        boolean added;
+        likesLock.readLock().lock();
+        try {
+            if (likeBuffer.isEnabled()) {
+                checkLikeParticipants(filmId, userId);
+                likeBuffer.awaitCapacity();
+                added = likesIndex.addLike(filmId, userId);
+                likeBuffer.markDirty(filmId, userId);
+            } else {
+                added = filmStorage.addLike(filmId, userId);
+                if (added) {
+                    likesIndex.addLike(filmId, userId);
+                }
+            }
+            if (added) {
+                popularityIndex.increment(filmId);
+            }
+        } finally {
+            likesLock.readLock().unlock();
         }
 
-        log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        if (added) {
+            log.info("Пользователь {} поставил лайк фильму {}", userId, filmId);
+        } else {
+            log.debug("Пользователь {} уже ставил лайк фильму {}", userId, filmId);
+        }
     }
 
     public void removeLike(int filmId, int userId) {
         log.debug("Удаление лайка: пользователь {} удаляет лайк с фильма {}", userId, filmId);
 
-        userService.getUserById(userId);
-        getFilmById(filmId);
+        boolean removed;
+        likesLock.readLock().lock();
+        try {
+            if (likeBuffer.isEnabled()) {
+                likeBuffer.awaitCapacity();
+                removed = likesIndex.removeLike(filmId, userId);
+                likeBuffer.markDirty(filmId, userId);
+            } else {
+                removed = filmStorage.removeLike(filmId, userId);
+                if (removed) {
+                    likesIndex.removeLike(filmId, userId);
+                }
+            }
+            if (removed) {
+                popularityIndex.decrement(filmId);
+            }
+        } finally {
+            likesLock.readLock().unlock();
+        }
 
-        if (filmStorage instanceof FilmDbStorage) {
-            FilmDbStorage filmDbStorage = (FilmDbStorage) filmStorage;
-            filmDbStorage.removeLike(filmId, userId);
+        if (removed) {
+            log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+            return;
         }
 
-        log.info("Пользователь {} удалил лайк с фильма {}", userId, filmId);
+        // Лайка не было: только здесь выясняем, существуют ли фильм и пользователь
+        checkLikeParticipants(filmId, userId);
+        log.debug("У фильма {} нет лайка от пользователя {}", filmId, userId);
+    }
+
+    /**
+     * Проверка без обращения к базе: фильмы известны индексу популярности, пользователи — кэшу пользователей.
+     */
+    private void checkLikeParticipants(int filmId, int userId) {
+        if (!popularityIndex.contains(filmId)) {
+            throw new IllegalArgumentException("Фильм с id " + filmId + " не найден");
+        }
+        if (!userCache.contains(userId)) {
+            throw new IllegalArgumentException("Пользователь с id " + userId + " не найден");
+        }
     }
 
     public List<Film> getPopularFilms(int count) {
-        log.debug("Получение {} популярных фильмов", count);
-
-        if (filmStorage instanceof FilmDbStorage filmDbStorage) {
-            String sql = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name, m.description AS mpa_description, " +
-                    "COUNT(l.user_id) AS likes_count " +
-                    "FROM films f " +
-                    "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
-                    "LEFT JOIN likes l ON f.id = l.film_id " +
-                    "GROUP BY f.id, m.id, m.name, m.description " +
-                    "ORDER BY likes_count DESC " +
-                    "LIMIT ?";
-
-            List<Film> films = filmDbStorage.getJdbcTemplate().query(sql, (rs, rowNum) -> {
-                Film film = filmDbStorage.mapFilm(rs, rowNum);
-                return film;
-            }, count);
-
-            if (!films.isEmpty()) {
-                filmDbStorage.loadGenresForFilms(films);
+        return getPopularFilms(count, null, null);
+    }
+
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer year) {
+        log.debug("Получение {} популярных фильмов (жанр: {}, год: {})", count, genreId, year);
+        List<Film> films = filmStorage.getByIds(popularityIndex.getTopFilmIds(count, genreId, year));
+        log.info("Возвращено {} популярных фильмов", films.size());
+        return films;
+    }
+
+    public List<Film> searchFilms(String query, List<String> by, int count) {
+        log.debug("Поиск фильмов по запросу '{}' (поля: {}, лимит {})", query, by, count);
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        if (count <= 0 || count > MAX_PAGE_SIZE) {
+            throw new ValidationException("Количество результатов должно быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        boolean byTitle = false;
+        boolean byDescription = false;
+        for (String field : by) {
+            switch (field.trim().toLowerCase()) {
+                case "title" -> byTitle = true;
+                case "description" -> byDescription = true;
+                default -> throw new ValidationException("Неизвестное поле поиска: " + field);
             }
+        }
+
+        int[] ids = searchIndex.search(query, byTitle, byDescription, count, popularityIndex::getLikes);
+        List<Film> films = filmStorage.getByIds(ids);
+        log.info("По запросу '{}' найдено {} фильмов", query, films.size());
+        return films;
+    }
 
-            log.info("Возвращено {} популярных фильмов", films.size());
-            return films;
+    public List<Film> getRecommendations(int userId, int count) {
+        log.debug("Получение {} рекомендованных фильмов для пользователя {}", count, userId);
+        if (count <= 0 || count > likesIndex.getMaxRecommendations()) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до "
+                    + likesIndex.getMaxRecommendations());
         }
+        userService.getUserById(userId);
+        List<Film> films = filmStorage.getByIds(likesIndex.getRecommendedFilmIds(userId, count));
+        log.info("Пользователю {} рекомендовано {} фильмов", userId, films.size());
+        return films;
+    }
 
-        log.warn("FilmStorage не является FilmDbStorage");
-        return List.of();
+    public int recalculateLikesCount() {
+        int updated;
+        likesLock.writeLock().lock();
+        try {
+            if (likeBuffer.isEnabled()) {
+                likeBuffer.flush();
+            }
+            updated = filmStorage.recalculateLikesCount();
+            popularityIndex.reload();
+            likesIndex.reload();
+        } finally {
+            likesLock.writeLock().unlock();
+        }
+        log.info("Пересчитаны счётчики лайков, исправлено фильмов: {}", updated);
+        return updated;
     }
 
     public boolean filmExists(int id) {
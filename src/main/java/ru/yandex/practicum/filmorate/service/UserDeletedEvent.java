@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.service;
+
+/**
+ * Публикуется после удаления пользователя из базы, чтобы {@link FilmService} убрал его лайки из индексов фильмов.
+ */
+public record UserDeletedEvent(int userId) {
+}
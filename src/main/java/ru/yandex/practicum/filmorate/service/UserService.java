@@ -3,23 +3,33 @@ package ru.yandex.practicum.filmorate.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestionIndex;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 public class UserService {
     private final UserStorage userStorage;
+    private final FriendSuggestionIndex friendSuggestionIndex;
+    private final ApplicationEventPublisher eventPublisher;
     private static final Logger log = LoggerFactory.getLogger(UserService.class);
+    private static final int MAX_PAGE_SIZE = 1000;
 
     @Autowired
-    public UserService(UserStorage userStorage) {
+    public UserService(UserStorage userStorage,
+                       FriendSuggestionIndex friendSuggestionIndex,
+                       ApplicationEventPublisher eventPublisher) {
         this.userStorage = userStorage;
+        this.friendSuggestionIndex = friendSuggestionIndex;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<User> getAllUsers() {
@@ -29,6 +39,19 @@ public class UserService {
         return users;
     }
 
+    public List<User> getUsersPage(int afterId, int limit) {
+        log.debug("Получение страницы пользователей после id {} (лимит {})", afterId, limit);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+        return userStorage.getPage(afterId, limit);
+    }
+
+    public void streamAllUsers(Consumer<User> consumer) {
+        log.debug("Потоковая выгрузка всех пользователей");
+        userStorage.streamAll(consumer);
+    }
+
     public User getUserById(int id) {
         log.debug("Поиск пользователя с id {}", id);
         User user = userStorage.getById(id)
@@ -54,6 +77,14 @@ public class UserService {
         return updatedUser;
     }
 
+    public void deleteUser(int id) {
+        log.debug("Удаление пользователя с id {}", id);
+        getUserById(id);
+        userStorage.delete(id);
+        eventPublisher.publishEvent(new UserDeletedEvent(id));
+        log.info("Пользователь с id {} удален", id);
+    }
+
     public void addFriend(int userId, int friendId) {
         log.debug("Добавление в друзья: пользователь {} отправляет запрос пользователю {}", userId, friendId);
         getUserById(userId);
@@ -98,18 +129,24 @@ public class UserService {
 
     public List<User> getCommonFriends(int userId1, int userId2) {
         log.debug("Поиск общих друзей между пользователем {} и пользователем {}", userId1, userId2);
-        List<User> friends1 = getFriends(userId1);
-        List<User> friends2 = getFriends(userId2);
-
-        List<User> commonFriends = friends1.stream()
-                .filter(friends2::contains)
-                .collect(Collectors.toList());
+        UserDbStorage userDbStorage = (UserDbStorage) userStorage;
+        List<User> commonFriends = userDbStorage.getCommonFriends(userId1, userId2);
 
         log.debug("Найдено {} общих друзей между пользователем {} и пользователем {}",
                 commonFriends.size(), userId1, userId2);
         return commonFriends;
     }
 
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        log.debug("Получение рекомендаций друзей для пользователя {} (лимит {})", userId, limit);
+        if (limit <= 0 || limit > friendSuggestionIndex.getMaxSuggestions()) {
+            throw new ValidationException("Количество рекомендаций должно быть от 1 до "
+                    + friendSuggestionIndex.getMaxSuggestions());
+        }
+        getUserById(userId);
+        return userStorage.getByIds(friendSuggestionIndex.getSuggestedIds(userId, limit));
+    }
+
     public boolean userExists(int id) {
         log.debug("Проверка существования пользователя с id {}", id);
         return userStorage.exists(id);
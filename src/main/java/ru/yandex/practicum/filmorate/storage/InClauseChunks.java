@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.Collections;
+
+/**
+ * Выполнение запросов вида {@code WHERE id IN (...)} фиксированными порциями по 1, 8, 64 или 512 id.
+ * Число различных SQL-текстов не зависит от длины списка, поэтому разобранные запросы переиспользуются.
+ */
+public final class InClauseChunks {
+    private static final int[] CHUNK_SIZES = {1, 8, 64, 512};
+
+    private final String[] sqlByChunk;
+
+    /**
+     * @param template SQL-запрос с единственным {@code %s} на месте списка параметров IN
+     */
+    public InClauseChunks(String template) {
+        sqlByChunk = new String[CHUNK_SIZES.length];
+        for (int i = 0; i < CHUNK_SIZES.length; i++) {
+            sqlByChunk[i] = String.format(template, String.join(",", Collections.nCopies(CHUNK_SIZES[i], "?")));
+        }
+    }
+
+    public void query(JdbcTemplate jdbcTemplate, int[] ids, RowCallbackHandler handler) {
+        int offset = 0;
+        while (offset < ids.length) {
+            int remaining = ids.length - offset;
+            int sizeIndex = 0;
+            while (sizeIndex < CHUNK_SIZES.length - 1 && CHUNK_SIZES[sizeIndex] < remaining) {
+                sizeIndex++;
+            }
+            int chunkSize = CHUNK_SIZES[sizeIndex];
+            int taken = Math.min(chunkSize, remaining);
+
+            // Недостающие позиции заполняются последним id: дубликаты в IN не дают лишних строк
+            Object[] params = new Object[chunkSize];
+            for (int i = 0; i < chunkSize; i++) {
+                params[i] = ids[offset + Math.min(i, taken - 1)];
+            }
+            jdbcTemplate.query(sqlByChunk[sizeIndex], handler, params);
+            offset += taken;
+        }
+    }
+}
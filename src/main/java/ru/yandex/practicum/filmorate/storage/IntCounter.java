@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Счётчик по положительным id на открытой адресации без упаковки int в Integer.
+ */
+public final class IntCounter {
+    private static final int FREE = 0;
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    public IntCounter(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+    }
+
+    public void increment(int id) {
+        add(id, 1);
+    }
+
+    public void add(int id, int delta) {
+        // id положительные, поэтому 0 означает свободную ячейку
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        while (keys[slot] != FREE && keys[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        counts[slot] += delta;
+        if (keys[slot] == FREE) {
+            keys[slot] = id;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+    }
+
+    public int get(int id) {
+        int mask = keys.length - 1;
+        int slot = mix(id) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == id) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != FREE) {
+                visitor.visit(keys[i], counts[i]);
+            }
+        }
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int id, int count);
+    }
+}
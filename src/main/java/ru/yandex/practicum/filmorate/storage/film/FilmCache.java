@@ -0,0 +1,167 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Кэш полностью собранных фильмов перед {@link FilmDbStorage} с вытеснением W-TinyLFU (Caffeine).
+ * <p>
+ * В кэше хранится неизменяемый снимок фильма, в котором жанры и рейтинг MPA записаны только
+ * по id. При каждом чтении собирается новый {@link Film}, а жанры и рейтинг берутся копиями из
+ * справочников {@link GenreDbStorage} и {@link MpaDbStorage}, поэтому вызывающий код может
+ * свободно изменять полученный объект, а перезагрузка справочников сразу видна без сброса кэша.
+ * <p>
+ * Размер ограничен оценкой занимаемой памяти ({@code filmorate.films.cache.max-bytes}),
+ * а не числом записей: фильмы с длинным описанием вытесняют больше соседей.
+ * Изменённый или удалённый фильм сбрасывается сразу и ещё раз после завершения транзакции,
+ * чтобы параллельное чтение не вернуло в кэш незафиксированную или старую версию.
+ */
+@Component
+public class FilmCache implements MeterBinder {
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+    private final Cache<Integer, Snapshot> cache;
+
+    @Autowired
+    public FilmCache(GenreDbStorage genreStorage,
+                     MpaDbStorage mpaStorage,
+                     @Value("${filmorate.films.cache.max-bytes:67108864}") long maxBytes) {
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((Integer id, Snapshot snapshot) -> snapshot.weight())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Возвращает фильм из кэша или загружает его; {@code loader} возвращает {@code null} для отсутствующего фильма.
+     * Загрузка одного id выполняется однократно даже при параллельных запросах.
+     */
+    public Film get(int id, IntFunction<Film> loader) {
+        Snapshot snapshot = cache.get(id, key -> {
+            Film film = loader.apply(key);
+            return film == null ? null : Snapshot.of(film);
+        });
+        return snapshot == null ? null : toFilm(snapshot);
+    }
+
+    /**
+     * Возвращает найденные фильмы по id; отсутствующие в кэше загружаются одним вызовом {@code loader}.
+     */
+    public Map<Integer, Film> getAll(int[] ids, Function<int[], List<Film>> loader) {
+        Set<Integer> keys = new LinkedHashSet<>();
+        for (int id : ids) {
+            keys.add(id);
+        }
+        Map<Integer, Snapshot> snapshots = cache.getAll(keys, missing -> {
+            int[] missingIds = missing.stream().mapToInt(Integer::intValue).toArray();
+            Map<Integer, Snapshot> loaded = new HashMap<>();
+            for (Film film : loader.apply(missingIds)) {
+                loaded.put(film.getId(), Snapshot.of(film));
+            }
+            return loaded;
+        });
+
+        Map<Integer, Film> films = new HashMap<>(snapshots.size() * 2);
+        snapshots.forEach((id, snapshot) -> films.put(id, toFilm(snapshot)));
+        return films;
+    }
+
+    public void invalidate(int id) {
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Счётчики попаданий, промахов и вытеснений.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "films");
+        Gauge.builder("filmorate.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", "films")
+                .register(registry);
+    }
+
+    private Film toFilm(Snapshot snapshot) {
+        Film film = new Film();
+        film.setId(snapshot.id());
+        film.setName(snapshot.name());
+        film.setDescription(snapshot.description());
+        film.setReleaseDate(snapshot.releaseDate());
+        film.setDuration(snapshot.duration());
+        if (snapshot.mpaId() > 0) {
+            mpaStorage.getMpaRatingById(snapshot.mpaId()).ifPresent(film::setMpa);
+        }
+        LinkedHashSet<Genre> genres = new LinkedHashSet<>();
+        for (int genreId : snapshot.genreIds()) {
+            genreStorage.getGenreById(genreId).ifPresent(genres::add);
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    private record Snapshot(int id, String name, String description, LocalDate releaseDate, int duration,
+                            int mpaId, int[] genreIds) {
+
+        private static Snapshot of(Film film) {
+            int[] genreIds = film.getGenres() == null ? new int[0] : film.getGenres().stream()
+                    .mapToInt(Genre::getId)
+                    .toArray();
+            int mpaId = film.getMpa() != null ? film.getMpa().getId() : 0;
+            return new Snapshot(film.getId(), film.getName(), film.getDescription(), film.getReleaseDate(),
+                    film.getDuration(), mpaId, genreIds);
+        }
+
+        private int weight() {
+            long bytes = ENTRY_OVERHEAD_BYTES + 4L * genreIds.length
+                    + 2L * (name != null ? name.length() : 0)
+                    + 2L * (description != null ? description.length() : 0);
+            return (int) Math.min(bytes, Integer.MAX_VALUE);
+        }
+    }
+}
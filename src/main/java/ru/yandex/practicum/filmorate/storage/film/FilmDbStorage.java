@@ -1,26 +1,70 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.InClauseChunks;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
+@Timed("filmorate.storage")
 @Repository
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final Counter FILMS_MAPPED = Metrics.counter("filmorate.rows.mapped", "entity", "film");
+    private static final String INSERT_FILM_SQL =
+            "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
+    private static final String MERGE_LIKE_SQL =
+            "MERGE INTO likes l " +
+            "USING (VALUES (CAST(? AS INTEGER), CAST(? AS INTEGER))) AS s(film_id, user_id) " +
+            "ON l.film_id = s.film_id AND l.user_id = s.user_id " +
+            "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (s.film_id, s.user_id)";
+    private static final InClauseChunks FILMS_BY_IDS = new InClauseChunks(
+            "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name, m.description AS mpa_description " +
+            "FROM films f " +
+            "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
+            "WHERE f.id IN (%s)");
+    private static final InClauseChunks GENRES_BY_FILM_IDS = new InClauseChunks(
+            "SELECT fg.film_id, g.id, g.name " +
+            "FROM film_genres fg " +
+            "JOIN genres g ON fg.genre_id = g.id " +
+            "WHERE fg.film_id IN (%s) " +
+            "ORDER BY fg.film_id, g.id");
 
     private final JdbcTemplate jdbcTemplate;
+    private final GenreDbStorage genreStorage;
+    private final MpaDbStorage mpaStorage;
+    private final FilmSearchIndex searchIndex;
+    private final FilmCache filmCache;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate,
+                         GenreDbStorage genreStorage,
+                         MpaDbStorage mpaStorage,
+                         FilmSearchIndex searchIndex,
+                         FilmCache filmCache) {
         this.jdbcTemplate = jdbcTemplate;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.searchIndex = searchIndex;
+        this.filmCache = filmCache;
     }
 
     @Override
@@ -38,8 +82,65 @@ public class FilmDbStorage implements FilmStorage {
         return films;
     }
 
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        String filmsSql = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name, m.description AS mpa_description " +
+                "FROM films f " +
+                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
+                "WHERE f.id > ? " +
+                "ORDER BY f.id " +
+                "LIMIT ?";
+
+        List<Film> films = jdbcTemplate.query(filmsSql, this::mapFilm, afterId, limit);
+
+        if (!films.isEmpty()) {
+            loadGenresForFilms(films);
+        }
+
+        return films;
+    }
+
+    /**
+     * Выгрузка страницами по {@link #STREAM_PAGE_SIZE} через {@link #getPage}: H2 без
+     * {@code LAZY_QUERY_EXECUTION} игнорирует fetch size и материализует весь результат,
+     * а сортировка соединения с жанрами требует его целиком. В памяти держится одна страница.
+     */
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        int afterId = 0;
+        List<Film> page;
+        do {
+            page = getPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
     @Override
     public Optional<Film> getById(int id) {
+        return Optional.ofNullable(filmCache.get(id, this::loadById));
+    }
+
+    @Override
+    public List<Film> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        Map<Integer, Film> filmsById = filmCache.getAll(ids, this::loadByIds);
+        List<Film> films = new ArrayList<>(filmsById.size());
+        for (int id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                films.add(film);
+            }
+        }
+        return films;
+    }
+
+    private Film loadById(int id) {
         String filmSql = "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name, m.description AS mpa_description " +
                 "FROM films f " +
                 "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
@@ -47,37 +148,87 @@ public class FilmDbStorage implements FilmStorage {
 
         List<Film> films = jdbcTemplate.query(filmSql, this::mapFilm, id);
         if (films.isEmpty()) {
-            return Optional.empty();
+            return null;
         }
 
         Film film = films.get(0);
         loadGenresForFilms(List.of(film));
 
-        return Optional.of(film);
+        return film;
+    }
+
+    private List<Film> loadByIds(int[] ids) {
+        List<Film> films = new ArrayList<>(ids.length);
+        FILMS_BY_IDS.query(jdbcTemplate, ids, rs -> films.add(mapFilm(rs, 0)));
+        loadGenresForFilms(films);
+        return films;
     }
 
     @Override
+    @Transactional
     public Film create(Film film) {
-        String sql = "INSERT INTO films (name, description, release_date, duration, mpa_id) VALUES (?, ?, ?, ?, ?)";
-
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setString(1, film.getName());
-            stmt.setString(2, film.getDescription());
-            stmt.setDate(3, film.getReleaseDate() != null ? java.sql.Date.valueOf(film.getReleaseDate()) : null);
-            stmt.setInt(4, film.getDuration());
-            stmt.setObject(5, film.getMpa() != null ? film.getMpa().getId() : null);
+            PreparedStatement stmt = connection.prepareStatement(INSERT_FILM_SQL, Statement.RETURN_GENERATED_KEYS);
+            setFilmParameters(stmt, film);
             return stmt;
         }, keyHolder);
 
         film.setId(keyHolder.getKey().intValue());
         saveFilmGenres(film);
+        AfterCommit.run(() -> searchIndex.put(film));
+        filmCache.invalidate(film.getId());
         return film;
     }
 
     @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        if (films.isEmpty()) {
+            return films;
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(INSERT_FILM_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (Film film : films) {
+                    setFilmParameters(stmt, film);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    int index = 0;
+                    while (keys.next()) {
+                        films.get(index++).setId(keys.getInt(1));
+                    }
+                    if (index != films.size()) {
+                        throw new SQLException("Получено " + index + " ключей для " + films.size() + " фильмов");
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<int[]> links = new ArrayList<>();
+        for (Film film : films) {
+            for (int genreId : genreIds(film)) {
+                links.add(new int[]{film.getId(), genreId});
+            }
+        }
+        if (!links.isEmpty()) {
+            String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+            jdbcTemplate.batchUpdate(sql, links, links.size(), (stmt, link) -> {
+                stmt.setInt(1, link[0]);
+                stmt.setInt(2, link[1]);
+            });
+        }
+        AfterCommit.run(() -> films.forEach(searchIndex::put));
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Film update(Film film) {
         String sql = "UPDATE films SET name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? WHERE id = ?";
         jdbcTemplate.update(sql,
@@ -90,10 +241,13 @@ public class FilmDbStorage implements FilmStorage {
         );
 
         updateFilmGenres(film);
+        AfterCommit.run(() -> searchIndex.put(film));
+        filmCache.invalidate(film.getId());
         return film;
     }
 
     @Override
+    @Transactional
     public void delete(int id) {
         String deleteLikesSql = "DELETE FROM likes WHERE film_id = ?";
         jdbcTemplate.update(deleteLikesSql, id);
@@ -103,6 +257,9 @@ public class FilmDbStorage implements FilmStorage {
 
         String deleteFilmSql = "DELETE FROM films WHERE id = ?";
         jdbcTemplate.update(deleteFilmSql, id);
+
+        AfterCommit.run(() -> searchIndex.remove(id));
+        filmCache.invalidate(id);
     }
 
     @Override
@@ -113,33 +270,130 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     public MpaRating getMpaRatingById(int id) {
-        String sql = "SELECT * FROM mpa_ratings WHERE id = ?";
-        return jdbcTemplate.queryForObject(sql, this::mapMpaRating, id);
+        return mpaStorage.getMpaRatingById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Рейтинг MPA с id " + id + " не найден"));
     }
 
     public List<MpaRating> getAllMpaRatings() {
-        String sql = "SELECT * FROM mpa_ratings";
-        return jdbcTemplate.query(sql, this::mapMpaRating);
+        return mpaStorage.getAllMpaRatings();
     }
 
     public Genre getGenreById(int id) {
-        String sql = "SELECT * FROM genres WHERE id = ?";
-        return jdbcTemplate.queryForObject(sql, this::mapGenre, id);
+        return genreStorage.getGenreById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Жанр с id " + id + " не найден"));
     }
 
     public List<Genre> getAllGenres() {
-        String sql = "SELECT * FROM genres";
-        return jdbcTemplate.query(sql, this::mapGenre);
+        return genreStorage.getAllGenres();
     }
 
-    public void addLike(int filmId, int userId) {
-        String sql = "INSERT INTO likes (film_id, user_id) VALUES (?, ?)";
-        jdbcTemplate.update(sql, filmId, userId);
+    /**
+     * Ставит лайк одним запросом MERGE: повторный лайк ничего не меняет и возвращает {@code false}.
+     * Существование фильма и пользователя не проверяется отдельно — при их отсутствии внешний ключ
+     * таблицы likes отклоняет вставку с {@link org.springframework.dao.DataIntegrityViolationException}.
+     */
+    @Override
+    @Transactional
+    public boolean addLike(int filmId, int userId) {
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(MERGE_LIKE_SQL, filmId, userId);
+        } catch (DuplicateKeyException e) {
+            // Параллельный запрос успел поставить тот же лайк
+            return false;
+        }
+        if (inserted == 0) {
+            return false;
+        }
+
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count + 1 WHERE id = ?", filmId);
+        return true;
     }
 
-    public void removeLike(int filmId, int userId) {
+    @Override
+    @Transactional
+    public boolean removeLike(int filmId, int userId) {
         String sql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
-        jdbcTemplate.update(sql, filmId, userId);
+        if (jdbcTemplate.update(sql, filmId, userId) == 0) {
+            return false;
+        }
+
+        jdbcTemplate.update("UPDATE films SET likes_count = likes_count - 1 WHERE id = ?", filmId);
+        return true;
+    }
+
+    /**
+     * Записывает накопленные изменения лайков одной транзакцией и пересчитывает
+     * счётчики likes_count затронутых фильмов по фактическому содержимому таблицы.
+     *
+     * @param added   пары (film_id, user_id), которые должны быть в таблице
+     * @param removed пары (film_id, user_id), которых в таблице быть не должно
+     */
+    @Transactional
+    public void saveLikes(List<int[]> added, List<int[]> removed) {
+        if (!added.isEmpty()) {
+            jdbcTemplate.batchUpdate(MERGE_LIKE_SQL, added, added.size(), (stmt, like) -> {
+                stmt.setInt(1, like[0]);
+                stmt.setInt(2, like[1]);
+            });
+        }
+        if (!removed.isEmpty()) {
+            String deleteSql = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+            jdbcTemplate.batchUpdate(deleteSql, removed, removed.size(), (stmt, like) -> {
+                stmt.setInt(1, like[0]);
+                stmt.setInt(2, like[1]);
+            });
+        }
+
+        Set<Integer> filmIds = new TreeSet<>();
+        added.forEach(like -> filmIds.add(like[0]));
+        removed.forEach(like -> filmIds.add(like[0]));
+        if (!filmIds.isEmpty()) {
+            String countSql = "UPDATE films SET likes_count = (SELECT COUNT(*) FROM likes WHERE film_id = ?) WHERE id = ?";
+            jdbcTemplate.batchUpdate(countSql, filmIds, filmIds.size(), (stmt, filmId) -> {
+                stmt.setInt(1, filmId);
+                stmt.setInt(2, filmId);
+            });
+        }
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT f.*, m.id AS mpa_id, m.name AS mpa_name, m.description AS mpa_description " +
+                "FROM films f " +
+                "LEFT JOIN mpa_ratings m ON f.mpa_id = m.id " +
+                "WHERE 1 = 1 ");
+        List<Object> params = new ArrayList<>();
+        if (genreId != null) {
+            sql.append("AND EXISTS (SELECT 1 FROM film_genres fg WHERE fg.film_id = f.id AND fg.genre_id = ?) ");
+            params.add(genreId);
+        }
+        if (year != null) {
+            // Диапазон дат вместо EXTRACT(YEAR ...), чтобы работал индекс idx_films_release_date
+            sql.append("AND f.release_date >= ? AND f.release_date < ? ");
+            params.add(java.sql.Date.valueOf(LocalDate.of(year, 1, 1)));
+            params.add(java.sql.Date.valueOf(LocalDate.of(year + 1, 1, 1)));
+        }
+        sql.append("ORDER BY f.likes_count DESC, f.id LIMIT ?");
+        params.add(count);
+
+        List<Film> films = jdbcTemplate.query(sql.toString(), this::mapFilm, params.toArray());
+
+        if (!films.isEmpty()) {
+            loadGenresForFilms(films);
+        }
+
+        return films;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public int recalculateLikesCount() {
+        String sql = "UPDATE films f SET likes_count = " +
+                "(SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id) " +
+                "WHERE likes_count <> (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id)";
+        return jdbcTemplate.update(sql);
     }
 
     public List<Integer> getLikes(int filmId) {
@@ -148,21 +402,58 @@ public class FilmDbStorage implements FilmStorage {
     }
 
     private void saveFilmGenres(Film film) {
-        if (film.getGenres() != null && !film.getGenres().isEmpty()) {
-            String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        insertFilmGenres(film.getId(), genreIds(film));
+    }
+
+    private void updateFilmGenres(Film film) {
+        String existingSql = "SELECT genre_id FROM film_genres WHERE film_id = ?";
+        Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList(existingSql, Integer.class, film.getId()));
+        Set<Integer> requested = genreIds(film);
+
+        List<Integer> removed = existing.stream().filter(id -> !requested.contains(id)).toList();
+        List<Integer> added = requested.stream().filter(id -> !existing.contains(id)).toList();
+
+        if (!removed.isEmpty()) {
+            String deleteSql = "DELETE FROM film_genres WHERE film_id = ? AND genre_id = ?";
+            jdbcTemplate.batchUpdate(deleteSql, removed, removed.size(), (stmt, genreId) -> {
+                stmt.setInt(1, film.getId());
+                stmt.setInt(2, genreId);
+            });
+        }
+        insertFilmGenres(film.getId(), added);
+    }
+
+    private void insertFilmGenres(int filmId, Collection<Integer> genreIds) {
+        if (genreIds.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO film_genres (film_id, genre_id) VALUES (?, ?)";
+        jdbcTemplate.batchUpdate(sql, genreIds, genreIds.size(), (stmt, genreId) -> {
+            stmt.setInt(1, filmId);
+            stmt.setInt(2, genreId);
+        });
+    }
+
+    private static Set<Integer> genreIds(Film film) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        if (film.getGenres() != null) {
             for (Genre genre : film.getGenres()) {
-                jdbcTemplate.update(sql, film.getId(), genre.getId());
+                ids.add(genre.getId());
             }
         }
+        return ids;
     }
 
-    private void updateFilmGenres(Film film) {
-        String deleteSql = "DELETE FROM film_genres WHERE film_id = ?";
-        jdbcTemplate.update(deleteSql, film.getId());
-        saveFilmGenres(film);
+    private static void setFilmParameters(PreparedStatement stmt, Film film) throws SQLException {
+        stmt.setString(1, film.getName());
+        stmt.setString(2, film.getDescription());
+        stmt.setDate(3, film.getReleaseDate() != null ? java.sql.Date.valueOf(film.getReleaseDate()) : null);
+        stmt.setInt(4, film.getDuration());
+        stmt.setObject(5, film.getMpa() != null ? film.getMpa().getId() : null);
     }
 
     public Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        FILMS_MAPPED.increment();
         Film film = new Film();
         film.setId(rs.getInt("id"));
         film.setName(rs.getString("name"));
@@ -187,42 +478,20 @@ public class FilmDbStorage implements FilmStorage {
         return film;
     }
 
-    private MpaRating mapMpaRating(ResultSet rs, int rowNum) throws SQLException {
-        MpaRating mpa = new MpaRating();
-        mpa.setId(rs.getInt("id"));
-        mpa.setName(rs.getString("name"));
-        mpa.setDescription(rs.getString("description"));
-        return mpa;
-    }
-
-    private Genre mapGenre(ResultSet rs, int rowNum) throws SQLException {
-        Genre genre = new Genre();
-        genre.setId(rs.getInt("id"));
-        genre.setName(rs.getString("name"));
-        return genre;
-    }
-
     public void loadGenresForFilms(List<Film> films) {
         if (films.isEmpty()) return;
 
-        List<Integer> filmIds = films.stream().map(Film::getId).collect(Collectors.toList());
-
-        String sql = "SELECT fg.film_id, g.id, g.name " +
-                "FROM film_genres fg " +
-                "JOIN genres g ON fg.genre_id = g.id " +
-                "WHERE fg.film_id IN (" + String.join(",", Collections.nCopies(filmIds.size(), "?")) + ") " +
-                "ORDER BY fg.film_id, g.id";
+        int[] filmIds = films.stream().mapToInt(Film::getId).toArray();
 
         Map<Integer, List<Genre>> genresByFilmId = new HashMap<>();
 
-        jdbcTemplate.query(sql, filmIds.toArray(), (rs, rowNum) -> {
+        GENRES_BY_FILM_IDS.query(jdbcTemplate, filmIds, rs -> {
             int filmId = rs.getInt("film_id");
             Genre genre = new Genre();
             genre.setId(rs.getInt("id"));
             genre.setName(rs.getString("name"));
 
             genresByFilmId.computeIfAbsent(filmId, k -> new ArrayList<>()).add(genre);
-            return null;
         });
 
         for (Film film : films) {
@@ -0,0 +1,347 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.IntCounter;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.EMPTY;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.contains;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.with;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.without;
+
+/**
+ * Лайки в памяти в двух направлениях: отсортированные массивы id фильмов для каждого пользователя
+ * и id пользователей для каждого фильма. Массивы заменяются целиком при каждом изменении.
+ * <p>
+ * Рекомендации строятся по пользователям с наибольшим пересечением лайков. Фильмы пользователя
+ * просматриваются от наименее популярных к наиболее популярным, а обход останавливается после
+ * {@code scan-limit} просмотренных лайков: редкие совпадения говорят о сходстве больше, чем массовые хиты.
+ */
+@Component
+public class FilmLikesIndex {
+    private static final Logger log = LoggerFactory.getLogger(FilmLikesIndex.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int maxRecommendations;
+    private final int neighbourLimit;
+    private final int scanLimit;
+
+    private int[][] filmsByUser = new int[0][];
+    private int[][] usersByFilm = new int[0][];
+
+    @Autowired
+    public FilmLikesIndex(JdbcTemplate jdbcTemplate,
+                          @Value("${filmorate.recommendations.max-limit:100}") int maxRecommendations,
+                          @Value("${filmorate.recommendations.neighbour-limit:50}") int neighbourLimit,
+                          @Value("${filmorate.recommendations.scan-limit:100000}") int scanLimit) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxRecommendations = maxRecommendations;
+        this.neighbourLimit = neighbourLimit;
+        this.scanLimit = scanLimit;
+    }
+
+    /**
+     * Читает базу без блокировки и заменяет индекс целиком. Изменения, сделанные между чтением и заменой,
+     * пропадут, поэтому на работающем сервере запись лайков на это время останавливает
+     * {@link ru.yandex.practicum.filmorate.service.FilmService#recalculateLikesCount()}.
+     */
+    @PostConstruct
+    public void reload() {
+        int maxUserId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Integer.class);
+        int maxFilmId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM films", Integer.class);
+        int[][] newFilmsByUser = new int[maxUserId + 1][];
+        Arrays.fill(newFilmsByUser, EMPTY);
+
+        LikesLoader loader = new LikesLoader(newFilmsByUser);
+        jdbcTemplate.query("SELECT user_id, film_id FROM likes ORDER BY user_id, film_id", rs -> {
+            loader.add(rs.getInt("user_id"), rs.getInt("film_id"));
+        });
+        loader.flush();
+
+        int[][] newUsersByFilm = invert(newFilmsByUser, maxFilmId);
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser = newFilmsByUser;
+            usersByFilm = newUsersByFilm;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс лайков загружен, лайков: {}", loader.likes);
+    }
+
+    /**
+     * @return {@code true}, если лайка ещё не было
+     */
+    public boolean addLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(userId, filmId);
+            int[] films = filmsByUser[userId];
+            filmsByUser[userId] = with(films, filmId);
+            usersByFilm[filmId] = with(usersByFilm[filmId], userId);
+            return filmsByUser[userId] != films;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code true}, если лайк был
+     */
+    public boolean removeLike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            if (userId >= filmsByUser.length) {
+                return false;
+            }
+            int[] films = filmsByUser[userId];
+            filmsByUser[userId] = without(films, filmId);
+            if (filmId < usersByFilm.length) {
+                usersByFilm[filmId] = without(usersByFilm[filmId], userId);
+            }
+            return filmsByUser[userId] != films;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFilm(int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (filmId < 0 || filmId >= usersByFilm.length) {
+                return;
+            }
+            for (int userId : usersByFilm[filmId]) {
+                filmsByUser[userId] = without(filmsByUser[userId], filmId);
+            }
+            usersByFilm[filmId] = EMPTY;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return id фильмов, которые нравились пользователю
+     */
+    public int[] removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            if (userId < 0 || userId >= filmsByUser.length) {
+                return EMPTY;
+            }
+            int[] films = filmsByUser[userId];
+            for (int filmId : films) {
+                usersByFilm[filmId] = without(usersByFilm[filmId], userId);
+            }
+            filmsByUser[userId] = EMPTY;
+            return films;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean hasLike(int filmId, int userId) {
+        lock.readLock().lock();
+        try {
+            return userId >= 0 && userId < filmsByUser.length && contains(filmsByUser[userId], filmId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getMaxRecommendations() {
+        return maxRecommendations;
+    }
+
+    /**
+     * Возвращает до {@code count} id фильмов, которые лайкнули похожие пользователи, но не лайкнул
+     * сам пользователь. Вес фильма равен сумме пересечений лайков рекомендовавших его пользователей,
+     * при равенстве выше фильм с меньшим id.
+     */
+    public int[] getRecommendedFilmIds(int userId, int count) {
+        lock.readLock().lock();
+        try {
+            if (userId < 0 || userId >= filmsByUser.length || filmsByUser[userId].length == 0) {
+                return EMPTY;
+            }
+            int[] liked = filmsByUser[userId];
+            long[] neighbours = findNeighbours(userId, liked);
+
+            IntCounter scores = new IntCounter(neighbours.length * 16);
+            for (long neighbour : neighbours) {
+                int overlap = high(neighbour);
+                for (int filmId : filmsByUser[low(neighbour)]) {
+                    if (!contains(liked, filmId)) {
+                        scores.add(filmId, overlap);
+                    }
+                }
+            }
+            return topIds(scores, Math.min(count, maxRecommendations));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет пользователей с наибольшим числом общих лайков, начиная с самых редких фильмов.
+     * Результат упорядочен по убыванию пересечения.
+     */
+    private long[] findNeighbours(int userId, int[] liked) {
+        long[] byPopularity = new long[liked.length];
+        for (int i = 0; i < liked.length; i++) {
+            byPopularity[i] = ((long) usersByFilm[liked[i]].length << 32) | liked[i];
+        }
+        Arrays.sort(byPopularity);
+
+        IntCounter overlaps = new IntCounter(Math.min(scanLimit, liked.length * 16));
+        int scanned = 0;
+        for (long entry : byPopularity) {
+            if (scanned >= scanLimit) {
+                break;
+            }
+            for (int otherId : usersByFilm[low(entry)]) {
+                if (otherId != userId) {
+                    overlaps.increment(otherId);
+                }
+            }
+            scanned += high(entry);
+        }
+
+        PriorityQueue<Long> top = new PriorityQueue<>(neighbourLimit + 1);
+        overlaps.forEach((otherId, overlap) -> offer(top, neighbourLimit, key(overlap, otherId)));
+        long[] result = new long[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            long entry = top.poll();
+            result[i] = ((long) high(entry) << 32) | (Integer.MAX_VALUE - low(entry));
+        }
+        return result;
+    }
+
+    private static int[] topIds(IntCounter scores, int count) {
+        if (count <= 0) {
+            return EMPTY;
+        }
+        PriorityQueue<Long> top = new PriorityQueue<>(count + 1);
+        scores.forEach((filmId, score) -> offer(top, count, key(score, filmId)));
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = Integer.MAX_VALUE - low(top.poll());
+        }
+        return result;
+    }
+
+    /**
+     * Минимальная куча из лучших {@code limit} ключей: вытесняется наименьший.
+     */
+    private static void offer(PriorityQueue<Long> top, int limit, long key) {
+        if (top.size() < limit) {
+            top.add(key);
+        } else if (top.peek() < key) {
+            top.poll();
+            top.add(key);
+        }
+    }
+
+    /**
+     * Ключ сортировки: больший вес выше, при равенстве выше меньший id.
+     */
+    private static long key(int weight, int id) {
+        return ((long) weight << 32) | (Integer.MAX_VALUE - id);
+    }
+
+    private static int high(long value) {
+        return (int) (value >>> 32);
+    }
+
+    private static int low(long value) {
+        return (int) value;
+    }
+
+    private void ensureCapacity(int userId, int filmId) {
+        if (userId >= filmsByUser.length) {
+            int oldLength = filmsByUser.length;
+            filmsByUser = Arrays.copyOf(filmsByUser, Math.max(userId + 1, oldLength * 2));
+            Arrays.fill(filmsByUser, oldLength, filmsByUser.length, EMPTY);
+        }
+        if (filmId >= usersByFilm.length) {
+            int oldLength = usersByFilm.length;
+            usersByFilm = Arrays.copyOf(usersByFilm, Math.max(filmId + 1, oldLength * 2));
+            Arrays.fill(usersByFilm, oldLength, usersByFilm.length, EMPTY);
+        }
+    }
+
+    /**
+     * Строит обратный индекс подсчётом: пользователи перебираются по возрастанию id,
+     * поэтому массивы пользователей у каждого фильма получаются отсортированными.
+     */
+    private static int[][] invert(int[][] filmsByUser, int maxFilmId) {
+        int[] sizes = new int[maxFilmId + 1];
+        for (int[] films : filmsByUser) {
+            for (int filmId : films) {
+                if (filmId <= maxFilmId) {
+                    sizes[filmId]++;
+                }
+            }
+        }
+        int[][] usersByFilm = new int[maxFilmId + 1][];
+        for (int filmId = 0; filmId <= maxFilmId; filmId++) {
+            usersByFilm[filmId] = sizes[filmId] == 0 ? EMPTY : new int[sizes[filmId]];
+        }
+        Arrays.fill(sizes, 0);
+        for (int userId = 0; userId < filmsByUser.length; userId++) {
+            for (int filmId : filmsByUser[userId]) {
+                if (filmId <= maxFilmId) {
+                    usersByFilm[filmId][sizes[filmId]++] = userId;
+                }
+            }
+        }
+        return usersByFilm;
+    }
+
+    /**
+     * Собирает лайки одного пользователя во временный буфер: строки приходят
+     * отсортированными по (user_id, film_id), поэтому массивы получаются уже упорядоченными.
+     */
+    private static final class LikesLoader {
+        private final int[][] filmsByUser;
+        private int[] buffer = new int[16];
+        private int size;
+        private int currentUserId = -1;
+        private long likes;
+
+        private LikesLoader(int[][] filmsByUser) {
+            this.filmsByUser = filmsByUser;
+        }
+
+        private void add(int userId, int filmId) {
+            if (userId != currentUserId) {
+                flush();
+                currentUserId = userId;
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, size * 2);
+            }
+            buffer[size++] = filmId;
+            likes++;
+        }
+
+        private void flush() {
+            if (currentUserId >= 0 && currentUserId < filmsByUser.length && size > 0) {
+                filmsByUser[currentUserId] = Arrays.copyOf(buffer, size);
+            }
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Рейтинг фильмов по количеству лайков, хранящийся в памяти.
+ * Ключ в отсортированном множестве кодирует пару (лайки по убыванию, id по возрастанию),
+ * поэтому порядок совпадает с SQL-запросом {@link FilmDbStorage#getPopular(int, Integer, Integer)}.
+ * Помимо общего рейтинга поддерживаются отдельные рейтинги по жанру, году выпуска
+ * и их сочетанию, чтобы выборка с фильтром стоила столько же, сколько без него.
+ */
+@Component
+public class FilmPopularityIndex {
+    private static final Logger log = LoggerFactory.getLogger(FilmPopularityIndex.class);
+    private static final int ABSENT = -1;
+    private static final int[] NO_GENRES = new int[0];
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private TreeSet<Long> ranking = new TreeSet<>();
+    private Map<Integer, TreeSet<Long>> rankingByGenre = new HashMap<>();
+    private Map<Integer, TreeSet<Long>> rankingByYear = new HashMap<>();
+    private Map<Long, TreeSet<Long>> rankingByGenreAndYear = new HashMap<>();
+    private int[] likesByFilmId = new int[0];
+    private int[] yearByFilmId = new int[0];
+    private int[][] genresByFilmId = new int[0][];
+
+    @Autowired
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Читает базу без блокировки и заменяет индекс целиком. Изменения, сделанные между чтением и заменой,
+     * пропадут, поэтому на работающем сервере запись лайков на это время останавливает
+     * {@link ru.yandex.practicum.filmorate.service.FilmService#recalculateLikesCount()}.
+     */
+    @PostConstruct
+    public void reload() {
+        Map<Integer, int[]> likesAndYears = new HashMap<>();
+        String filmsSql = "SELECT f.id, EXTRACT(YEAR FROM f.release_date) AS release_year, " +
+                "COUNT(l.user_id) AS likes " +
+                "FROM films f " +
+                "LEFT JOIN likes l ON f.id = l.film_id " +
+                "GROUP BY f.id, f.release_date";
+        jdbcTemplate.query(filmsSql, rs -> {
+            likesAndYears.put(rs.getInt("id"), new int[]{rs.getInt("likes"), rs.getInt("release_year")});
+        });
+
+        Map<Integer, int[]> genres = new HashMap<>();
+        jdbcTemplate.query("SELECT film_id, genre_id FROM film_genres ORDER BY film_id, genre_id", rs -> {
+            int[] current = genres.getOrDefault(rs.getInt("film_id"), NO_GENRES);
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = rs.getInt("genre_id");
+            genres.put(rs.getInt("film_id"), updated);
+        });
+
+        lock.writeLock().lock();
+        try {
+            ranking = new TreeSet<>();
+            rankingByGenre = new HashMap<>();
+            rankingByYear = new HashMap<>();
+            rankingByGenreAndYear = new HashMap<>();
+            likesByFilmId = new int[0];
+            yearByFilmId = new int[0];
+            genresByFilmId = new int[0][];
+            likesAndYears.forEach((filmId, values) -> {
+                ensureCapacity(filmId);
+                likesByFilmId[filmId] = values[0];
+                yearByFilmId[filmId] = values[1];
+                genresByFilmId[filmId] = genres.getOrDefault(filmId, NO_GENRES);
+                addToRankings(filmId);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Индекс популярности загружен, фильмов: {}", likesAndYears.size());
+    }
+
+    public void register(Film film) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(film.getId());
+            if (likesByFilmId[film.getId()] == ABSENT) {
+                likesByFilmId[film.getId()] = 0;
+                setAttributes(film);
+                addToRankings(film.getId());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void update(Film film) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(film.getId());
+            if (likesByFilmId[film.getId()] == ABSENT) {
+                likesByFilmId[film.getId()] = 0;
+            } else {
+                removeFromRankings(film.getId());
+            }
+            setAttributes(film);
+            addToRankings(film.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            if (filmId < likesByFilmId.length && likesByFilmId[filmId] != ABSENT) {
+                removeFromRankings(filmId);
+                likesByFilmId[filmId] = ABSENT;
+                genresByFilmId[filmId] = NO_GENRES;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void increment(int filmId) {
+        change(filmId, 1);
+    }
+
+    public void decrement(int filmId) {
+        change(filmId, -1);
+    }
+
+    public int getLikes(int filmId) {
+        lock.readLock().lock();
+        try {
+            if (filmId < 0 || filmId >= likesByFilmId.length || likesByFilmId[filmId] == ABSENT) {
+                return 0;
+            }
+            return likesByFilmId[filmId];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(int filmId) {
+        lock.readLock().lock();
+        try {
+            return filmId >= 0 && filmId < likesByFilmId.length && likesByFilmId[filmId] != ABSENT;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int[] getTopFilmIds(int count) {
+        return getTopFilmIds(count, null, null);
+    }
+
+    public int[] getTopFilmIds(int count, Integer genreId, Integer year) {
+        lock.readLock().lock();
+        try {
+            TreeSet<Long> bucket;
+            if (genreId != null && year != null) {
+                bucket = rankingByGenreAndYear.get(genreYearKey(genreId, year));
+            } else if (genreId != null) {
+                bucket = rankingByGenre.get(genreId);
+            } else if (year != null) {
+                bucket = rankingByYear.get(year);
+            } else {
+                bucket = ranking;
+            }
+            if (bucket == null) {
+                return new int[0];
+            }
+
+            int[] result = new int[Math.min(Math.max(count, 0), bucket.size())];
+            Iterator<Long> iterator = bucket.iterator();
+            for (int i = 0; i < result.length; i++) {
+                result[i] = filmId(iterator.next());
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void change(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(filmId);
+            if (likesByFilmId[filmId] == ABSENT) {
+                likesByFilmId[filmId] = 0;
+            } else {
+                removeFromRankings(filmId);
+            }
+            likesByFilmId[filmId] = Math.max(likesByFilmId[filmId] + delta, 0);
+            addToRankings(filmId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void setAttributes(Film film) {
+        yearByFilmId[film.getId()] = film.getReleaseDate() != null ? film.getReleaseDate().getYear() : 0;
+        if (film.getGenres() == null || film.getGenres().isEmpty()) {
+            genresByFilmId[film.getId()] = NO_GENRES;
+        } else {
+            genresByFilmId[film.getId()] = film.getGenres().stream()
+                    .mapToInt(Genre::getId)
+                    .distinct()
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    private void addToRankings(int filmId) {
+        long key = key(likesByFilmId[filmId], filmId);
+        int year = yearByFilmId[filmId];
+        ranking.add(key);
+        rankingByYear.computeIfAbsent(year, k -> new TreeSet<>()).add(key);
+        for (int genreId : genresByFilmId[filmId]) {
+            rankingByGenre.computeIfAbsent(genreId, k -> new TreeSet<>()).add(key);
+            rankingByGenreAndYear.computeIfAbsent(genreYearKey(genreId, year), k -> new TreeSet<>()).add(key);
+        }
+    }
+
+    private void removeFromRankings(int filmId) {
+        long key = key(likesByFilmId[filmId], filmId);
+        int year = yearByFilmId[filmId];
+        ranking.remove(key);
+        removeFromBucket(rankingByYear, year, key);
+        for (int genreId : genresByFilmId[filmId]) {
+            removeFromBucket(rankingByGenre, genreId, key);
+            removeFromBucket(rankingByGenreAndYear, genreYearKey(genreId, year), key);
+        }
+    }
+
+    private static <K> void removeFromBucket(Map<K, TreeSet<Long>> buckets, K bucketKey, long key) {
+        TreeSet<Long> bucket = buckets.get(bucketKey);
+        if (bucket != null) {
+            bucket.remove(key);
+            if (bucket.isEmpty()) {
+                buckets.remove(bucketKey);
+            }
+        }
+    }
+
+    private void ensureCapacity(int filmId) {
+        if (filmId < likesByFilmId.length) {
+            return;
+        }
+        int oldLength = likesByFilmId.length;
+        int newLength = Math.max(filmId + 1, oldLength * 2);
+        likesByFilmId = Arrays.copyOf(likesByFilmId, newLength);
+        Arrays.fill(likesByFilmId, oldLength, newLength, ABSENT);
+        yearByFilmId = Arrays.copyOf(yearByFilmId, newLength);
+        genresByFilmId = Arrays.copyOf(genresByFilmId, newLength);
+        Arrays.fill(genresByFilmId, oldLength, newLength, NO_GENRES);
+    }
+
+    private static long key(int likes, int filmId) {
+        return ((long) (Integer.MAX_VALUE - likes) << 32) | filmId;
+    }
+
+    private static long genreYearKey(int genreId, int year) {
+        return ((long) genreId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long key) {
+        return (int) key;
+    }
+}
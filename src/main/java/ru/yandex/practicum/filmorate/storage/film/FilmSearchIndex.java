@@ -0,0 +1,283 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.IntCounter;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntUnaryOperator;
+
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.EMPTY;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.with;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.without;
+
+/**
+ * Полнотекстовый индекс по названию и описанию фильмов: для каждого слова хранится
+ * отсортированный массив id фильмов, словарь упорядочен, поэтому поиск по префиксу
+ * сводится к обходу диапазона словаря и не зависит от размера каталога.
+ * <p>
+ * Слова приводятся к нижнему регистру после нормализации NFKC, буква «ё» заменяется на «е».
+ * Каждое слово запроса должно совпасть с началом какого-либо слова фильма; точное совпадение
+ * весит вдвое больше префиксного, совпадение в названии — втрое больше, чем в описании.
+ */
+@Component
+public class FilmSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(FilmSearchIndex.class);
+    private static final String[] NO_TERMS = new String[0];
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int TITLE_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private NavigableMap<String, int[]> titleTerms = new TreeMap<>();
+    private NavigableMap<String, int[]> descriptionTerms = new TreeMap<>();
+    private Map<Integer, Document> documents = new HashMap<>();
+
+    @Autowired
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Перестраивает индекс: разбиение текстов на слова выполняется параллельно,
+     * затем слова раскладываются по спискам в порядке id, и списки получаются отсортированными.
+     */
+    @PostConstruct
+    public void reload() {
+        List<Object[]> rows = jdbcTemplate.query("SELECT id, name, description FROM films ORDER BY id",
+                (rs, rowNum) -> new Object[]{rs.getInt("id"), rs.getString("name"), rs.getString("description")});
+
+        List<Document> parsed = rows.parallelStream()
+                .map(row -> new Document((Integer) row[0], tokenize((String) row[1]), tokenize((String) row[2])))
+                .toList();
+
+        Map<String, PostingsBuilder> titleBuilders = new HashMap<>();
+        Map<String, PostingsBuilder> descriptionBuilders = new HashMap<>();
+        Map<Integer, Document> newDocuments = new HashMap<>(parsed.size() * 2);
+        for (Document document : parsed) {
+            for (String term : document.title()) {
+                titleBuilders.computeIfAbsent(term, k -> new PostingsBuilder()).add(document.filmId());
+            }
+            for (String term : document.description()) {
+                descriptionBuilders.computeIfAbsent(term, k -> new PostingsBuilder()).add(document.filmId());
+            }
+            newDocuments.put(document.filmId(), document);
+        }
+
+        NavigableMap<String, int[]> newTitleTerms = build(titleBuilders);
+        NavigableMap<String, int[]> newDescriptionTerms = build(descriptionBuilders);
+
+        lock.writeLock().lock();
+        try {
+            titleTerms = newTitleTerms;
+            descriptionTerms = newDescriptionTerms;
+            documents = newDocuments;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Поисковый индекс загружен, фильмов: {}, слов: {}",
+                newDocuments.size(), newTitleTerms.size() + newDescriptionTerms.size());
+    }
+
+    public void put(Film film) {
+        Document document = new Document(film.getId(), tokenize(film.getName()), tokenize(film.getDescription()));
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(film.getId(), document);
+            if (previous != null) {
+                unlink(previous);
+            }
+            for (String term : document.title()) {
+                titleTerms.merge(term, new int[]{film.getId()}, (ids, single) -> with(ids, film.getId()));
+            }
+            for (String term : document.description()) {
+                descriptionTerms.merge(term, new int[]{film.getId()}, (ids, single) -> with(ids, film.getId()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int filmId) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(filmId);
+            if (previous != null) {
+                unlink(previous);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает до {@code count} id фильмов, подходящих под все слова запроса. Итоговый вес —
+     * текстовая релевантность, умноженная на {@code 1 + ln(1 + лайки)}; при равенстве выше меньший id.
+     */
+    public int[] search(String query, boolean byTitle, boolean byDescription, int count,
+                        IntUnaryOperator likesByFilmId) {
+        String[] tokens = tokenize(query);
+        if (tokens.length == 0 || count <= 0) {
+            return EMPTY;
+        }
+
+        IntCounter relevance;
+        lock.readLock().lock();
+        try {
+            relevance = match(tokens[0], byTitle, byDescription);
+            for (int i = 1; i < tokens.length && relevance.size() > 0; i++) {
+                IntCounter next = match(tokens[i], byTitle, byDescription);
+                IntCounter both = new IntCounter(Math.min(relevance.size(), next.size()));
+                relevance.forEach((filmId, score) -> {
+                    int tokenScore = next.get(filmId);
+                    if (tokenScore > 0) {
+                        both.add(filmId, score + tokenScore);
+                    }
+                });
+                relevance = both;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Hit> order = Comparator.comparingDouble(Hit::score)
+                .thenComparing(Comparator.comparingInt(Hit::filmId).reversed());
+        PriorityQueue<Hit> top = new PriorityQueue<>(count + 1, order);
+        relevance.forEach((filmId, score) -> {
+            Hit hit = new Hit(filmId, score * (1 + Math.log1p(likesByFilmId.applyAsInt(filmId))));
+            if (top.size() < count) {
+                top.add(hit);
+            } else if (order.compare(top.peek(), hit) < 0) {
+                top.poll();
+                top.add(hit);
+            }
+        });
+
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = top.poll().filmId();
+        }
+        return result;
+    }
+
+    /**
+     * Разбивает текст на слова из букв и цифр и возвращает их без повторов в порядке сортировки.
+     */
+    public static String[] tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return NO_TERMS;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replace('ё', 'е');
+
+        TreeSet<String> terms = new TreeSet<>();
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                terms.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms.toArray(NO_TERMS);
+    }
+
+    private IntCounter match(String token, boolean byTitle, boolean byDescription) {
+        IntCounter scores = new IntCounter(16);
+        if (byTitle) {
+            collect(titleTerms, token, TITLE_WEIGHT, scores);
+        }
+        if (byDescription) {
+            collect(descriptionTerms, token, DESCRIPTION_WEIGHT, scores);
+        }
+        return scores;
+    }
+
+    private static void collect(NavigableMap<String, int[]> terms, String token, int weight, IntCounter scores) {
+        if (token.length() < MIN_PREFIX_LENGTH) {
+            for (int filmId : terms.getOrDefault(token, EMPTY)) {
+                scores.add(filmId, 2 * weight);
+            }
+            return;
+        }
+        // Все слова, начинающиеся с token, лежат в диапазоне [token, token + Character.MAX_VALUE)
+        for (Map.Entry<String, int[]> entry : terms.subMap(token, true, token + Character.MAX_VALUE, false).entrySet()) {
+            int termWeight = entry.getKey().length() == token.length() ? 2 * weight : weight;
+            for (int filmId : entry.getValue()) {
+                scores.add(filmId, termWeight);
+            }
+        }
+    }
+
+    private void unlink(Document document) {
+        for (String term : document.title()) {
+            removePosting(titleTerms, term, document.filmId());
+        }
+        for (String term : document.description()) {
+            removePosting(descriptionTerms, term, document.filmId());
+        }
+    }
+
+    private static void removePosting(NavigableMap<String, int[]> terms, String term, int filmId) {
+        int[] ids = terms.get(term);
+        if (ids == null) {
+            return;
+        }
+        int[] updated = without(ids, filmId);
+        if (updated.length == 0) {
+            terms.remove(term);
+        } else {
+            terms.put(term, updated);
+        }
+    }
+
+    private static NavigableMap<String, int[]> build(Map<String, PostingsBuilder> builders) {
+        NavigableMap<String, int[]> terms = new TreeMap<>();
+        builders.forEach((term, builder) -> terms.put(term, builder.toArray()));
+        return terms;
+    }
+
+    private record Document(int filmId, String[] title, String[] description) {
+    }
+
+    private record Hit(int filmId, double score) {
+    }
+
+    private static final class PostingsBuilder {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int filmId) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = filmId;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -3,18 +3,35 @@ package ru.yandex.practicum.filmorate.storage.film;
 import ru.yandex.practicum.filmorate.model.Film;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     List<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Optional<Film> getById(int id);
 
+    List<Film> getByIds(int[] ids);
+
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Film update(Film film);
 
     void delete(int id);
 
     boolean exists(int id);
+
+    boolean addLike(int filmId, int userId);
+
+    boolean removeLike(int filmId, int userId);
+
+    List<Film> getPopular(int count, Integer genreId, Integer year);
+
+    int recalculateLikesCount();
 }
\ No newline at end of file
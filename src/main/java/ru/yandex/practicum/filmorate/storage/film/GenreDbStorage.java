@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -8,11 +9,17 @@ import ru.yandex.practicum.filmorate.model.Genre;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Справочник жанров. Таблица загружается в память целиком при старте и заменяется
+ * новым снимком при {@link #reload()}; читатели всегда видят согласованный снимок.
+ * Наружу отдаются копии: жанры попадают в фильмы, которые вызывающий код вправе изменять.
+ */
 @Repository
 public class GenreDbStorage {
 
     private final JdbcTemplate jdbcTemplate;
     private final GenreRowMapper genreRowMapper;
+    private volatile Dictionary dictionary = new Dictionary(new Genre[0], List.of());
 
     @Autowired
     public GenreDbStorage(JdbcTemplate jdbcTemplate) {
@@ -20,14 +27,38 @@ public class GenreDbStorage {
         this.genreRowMapper = new GenreRowMapper();
     }
 
-    public List<Genre> getAllGenres() {
+    @PostConstruct
+    public void reload() {
         String sql = "SELECT * FROM genres ORDER BY id";
-        return jdbcTemplate.query(sql, genreRowMapper);
+        List<Genre> genres = List.copyOf(jdbcTemplate.query(sql, genreRowMapper));
+
+        int maxId = genres.stream().mapToInt(Genre::getId).max().orElse(0);
+        Genre[] byId = new Genre[maxId + 1];
+        for (Genre genre : genres) {
+            byId[genre.getId()] = genre;
+        }
+        dictionary = new Dictionary(byId, genres);
+    }
+
+    public List<Genre> getAllGenres() {
+        return dictionary.all().stream().map(GenreDbStorage::copy).toList();
     }
 
     public Optional<Genre> getGenreById(int id) {
-        String sql = "SELECT * FROM genres WHERE id = ?";
-        List<Genre> genres = jdbcTemplate.query(sql, genreRowMapper, id);
-        return genres.stream().findFirst();
+        Genre[] byId = dictionary.byId();
+        if (id < 0 || id >= byId.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byId[id]).map(GenreDbStorage::copy);
+    }
+
+    private static Genre copy(Genre source) {
+        Genre genre = new Genre();
+        genre.setId(source.getId());
+        genre.setName(source.getName());
+        return genre;
+    }
+
+    private record Dictionary(Genre[] byId, List<Genre> all) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,277 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.OverloadException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отложенная запись лайков. Включается свойством {@code filmorate.likes.write-behind.enabled}.
+ * <p>
+ * Источником истины для лайков становится {@link FilmLikesIndex}: лайк сразу попадает в индексы
+ * в памяти и виден в популярных фильмах и рекомендациях, а в буфер добавляется только пара
+ * (фильм, пользователь). Фоновый поток раз в {@code flush-interval-ms} забирает пары порциями
+ * по {@code batch-size} и записывает то состояние, которое на этот момент хранится в индексе,
+ * поэтому несколько лайков и отмен одной пары сворачиваются в одну запись с последним значением.
+ * <p>
+ * Долговечность: лайк подтверждается клиенту до записи в базу. При штатной остановке буфер
+ * сбрасывается полностью, при аварийной теряются изменения за последний интервал записи —
+ * не больше {@code capacity} пар. При временной ошибке базы (нет соединения, истекло ожидание
+ * блокировки) порция возвращается в буфер и записывается в следующем цикле. Если порция нарушает
+ * ограничения целостности (например, фильм или пользователь удалены), пары записываются по одной;
+ * отклонённый базой лайк отбрасывается и откатывается в {@link FilmLikesIndex} и {@link FilmPopularityIndex},
+ * чтобы индексы в памяти не расходились с таблицей.
+ * <p>
+ * Обратное давление: когда в буфере {@code capacity} пар, политика {@code BLOCK} задерживает
+ * запрос до освобождения места, а {@code REJECT} отклоняет его с {@link OverloadException}.
+ * Проверка выполняется до изменения индексов, поэтому одновременные запросы могут превысить
+ * ёмкость не больше чем на число параллельных потоков.
+ */
+@Component
+public class LikeWriteBehindBuffer {
+    private static final Logger log = LoggerFactory.getLogger(LikeWriteBehindBuffer.class);
+
+    public enum OverflowPolicy {
+        BLOCK,
+        REJECT
+    }
+
+    private final FilmDbStorage filmStorage;
+    private final FilmLikesIndex likesIndex;
+    private final FilmPopularityIndex popularityIndex;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final LinkedHashSet<Long> pending = new LinkedHashSet<>();
+    private final Object flushLock = new Object();
+
+    private ScheduledExecutorService writer;
+
+    @Autowired
+    public LikeWriteBehindBuffer(FilmDbStorage filmStorage,
+                                 FilmLikesIndex likesIndex,
+                                 FilmPopularityIndex popularityIndex,
+                                 @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                                 @Value("${filmorate.likes.write-behind.capacity:100000}") int capacity,
+                                 @Value("${filmorate.likes.write-behind.batch-size:1000}") int batchSize,
+                                 @Value("${filmorate.likes.write-behind.flush-interval-ms:100}") long flushIntervalMs,
+                                 @Value("${filmorate.likes.write-behind.overflow:BLOCK}") OverflowPolicy overflowPolicy) {
+        this.filmStorage = filmStorage;
+        this.likesIndex = likesIndex;
+        this.popularityIndex = popularityIndex;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "likes-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Отложенная запись лайков включена: ёмкость {}, порция {}, интервал {} мс, переполнение {}",
+                capacity, batchSize, flushIntervalMs, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        writer.awaitTermination(flushIntervalMs + 5000, TimeUnit.MILLISECONDS);
+        int written = flush();
+        log.info("Отложенная запись лайков остановлена, при остановке записано: {}", written);
+        int left = getPendingCount();
+        if (left > 0) {
+            log.error("При остановке не записано {} лайков: база недоступна", left);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ждёт свободного места в буфере или отклоняет запрос в зависимости от политики переполнения.
+     * Вызывается до изменения индексов в памяти.
+     */
+    public void awaitCapacity() {
+        synchronized (pending) {
+            while (pending.size() >= capacity) {
+                if (overflowPolicy == OverflowPolicy.REJECT) {
+                    throw new OverloadException("Слишком много необработанных лайков, повторите запрос позже");
+                }
+                try {
+                    pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OverloadException("Ожидание записи лайков прервано");
+                }
+            }
+        }
+    }
+
+    /**
+     * Отмечает пару для записи. Вызывается после изменения индексов в памяти.
+     */
+    public void markDirty(int filmId, int userId) {
+        synchronized (pending) {
+            pending.add(key(filmId, userId));
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Записывает накопленные пары и возвращает число обработанных. Если база временно недоступна,
+     * необработанные пары остаются в буфере до следующего вызова.
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            int written = 0;
+            List<Long> batch = drain();
+            while (!batch.isEmpty()) {
+                int requeued = write(batch);
+                written += batch.size() - requeued;
+                if (requeued > 0) {
+                    break;
+                }
+                batch = drain();
+            }
+            return written;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка отложенной записи лайков", e);
+        }
+    }
+
+    private List<Long> drain() {
+        synchronized (pending) {
+            List<Long> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            Iterator<Long> iterator = pending.iterator();
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            pending.notifyAll();
+            return batch;
+        }
+    }
+
+    /**
+     * Записывает порцию и возвращает число пар, возвращённых в буфер для повтора.
+     */
+    private int write(List<Long> batch) {
+        List<int[]> added = new ArrayList<>();
+        List<int[]> removed = new ArrayList<>();
+        for (long key : batch) {
+            int[] like = {filmId(key), userId(key)};
+            if (likesIndex.hasLike(like[0], like[1])) {
+                added.add(like);
+            } else {
+                removed.add(like);
+            }
+        }
+
+        try {
+            filmStorage.saveLikes(added, removed);
+            return 0;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Порция из {} лайков нарушает ограничения базы, запись по одному: {}", batch.size(), e.getMessage());
+            return writeOneByOne(added, removed);
+        } catch (DataAccessException e) {
+            log.warn("Порция из {} лайков не записана, повтор в следующем цикле: {}", batch.size(), e.getMessage());
+            requeue(batch);
+            return batch.size();
+        }
+    }
+
+    private int writeOneByOne(List<int[]> added, List<int[]> removed) {
+        List<Long> retry = new ArrayList<>();
+        for (int[] like : added) {
+            try {
+                filmStorage.saveLikes(List.of(like), List.of());
+            } catch (DataIntegrityViolationException e) {
+                log.error("Лайк пользователя {} фильму {} отклонён базой и отменён: {}", like[1], like[0], e.getMessage());
+                rollBack(like[0], like[1]);
+            } catch (DataAccessException e) {
+                retry.add(key(like[0], like[1]));
+            }
+        }
+        if (!removed.isEmpty()) {
+            try {
+                filmStorage.saveLikes(List.of(), removed);
+            } catch (DataAccessException e) {
+                removed.forEach(like -> retry.add(key(like[0], like[1])));
+            }
+        }
+
+        if (!retry.isEmpty()) {
+            log.warn("{} лайков не записано, повтор в следующем цикле", retry.size());
+            requeue(retry);
+        }
+        return retry.size();
+    }
+
+    /**
+     * Убирает из индексов лайк, который база отказалась сохранить.
+     */
+    private void rollBack(int filmId, int userId) {
+        // Удалённый фильм уже убран из рейтинга и не должен в него вернуться
+        if (likesIndex.removeLike(filmId, userId) && popularityIndex.contains(filmId)) {
+            popularityIndex.decrement(filmId);
+        }
+    }
+
+    private void requeue(List<Long> keys) {
+        synchronized (pending) {
+            pending.addAll(keys);
+        }
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static int filmId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int userId(long key) {
+        return (int) key;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -8,11 +9,16 @@ import ru.yandex.practicum.filmorate.model.MpaRating;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Справочник рейтингов MPA, устроенный так же, как {@link GenreDbStorage}:
+ * снимок в памяти, который атомарно заменяется при {@link #reload()}, а наружу отдаются копии.
+ */
 @Repository
 public class MpaDbStorage {
 
     private final JdbcTemplate jdbcTemplate;
     private final MpaRatingRowMapper mpaRatingRowMapper;
+    private volatile Dictionary dictionary = new Dictionary(new MpaRating[0], List.of());
 
     @Autowired
     public MpaDbStorage(JdbcTemplate jdbcTemplate) {
@@ -20,14 +26,39 @@ public class MpaDbStorage {
         this.mpaRatingRowMapper = new MpaRatingRowMapper();
     }
 
-    public List<MpaRating> getAllMpaRatings() {
+    @PostConstruct
+    public void reload() {
         String sql = "SELECT * FROM mpa_ratings ORDER BY id";
-        return jdbcTemplate.query(sql, mpaRatingRowMapper);
+        List<MpaRating> ratings = List.copyOf(jdbcTemplate.query(sql, mpaRatingRowMapper));
+
+        int maxId = ratings.stream().mapToInt(MpaRating::getId).max().orElse(0);
+        MpaRating[] byId = new MpaRating[maxId + 1];
+        for (MpaRating rating : ratings) {
+            byId[rating.getId()] = rating;
+        }
+        dictionary = new Dictionary(byId, ratings);
+    }
+
+    public List<MpaRating> getAllMpaRatings() {
+        return dictionary.all().stream().map(MpaDbStorage::copy).toList();
     }
 
     public Optional<MpaRating> getMpaRatingById(int id) {
-        String sql = "SELECT * FROM mpa_ratings WHERE id = ?";
-        List<MpaRating> ratings = jdbcTemplate.query(sql, mpaRatingRowMapper, id);
-        return ratings.stream().findFirst();
+        MpaRating[] byId = dictionary.byId();
+        if (id < 0 || id >= byId.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byId[id]).map(MpaDbStorage::copy);
+    }
+
+    private static MpaRating copy(MpaRating source) {
+        MpaRating mpa = new MpaRating();
+        mpa.setId(source.getId());
+        mpa.setName(source.getName());
+        mpa.setDescription(source.getDescription());
+        return mpa;
+    }
+
+    private record Dictionary(MpaRating[] byId, List<MpaRating> all) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.IntCounter;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Рекомендации друзей по числу общих друзей: обход графа дружбы на два шага
+ * с ограничением числа рассматриваемых друзей на каждом шаге и отбором лучших кандидатов через кучу.
+ * Результат кэшируется для каждого пользователя и пересчитывается только после изменения
+ * списков друзей самого пользователя или его друзей.
+ */
+@Component
+public class FriendSuggestionIndex {
+    private static final Logger log = LoggerFactory.getLogger(FriendSuggestionIndex.class);
+
+    private final FriendshipGraph friendshipGraph;
+    private final int maxSuggestions;
+    private final int firstHopLimit;
+    private final int secondHopLimit;
+    private final int cacheSize;
+    private final Map<Integer, Suggestions> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FriendSuggestionIndex(FriendshipGraph friendshipGraph,
+                                 @Value("${filmorate.friends.suggestions.max-limit:100}") int maxSuggestions,
+                                 @Value("${filmorate.friends.suggestions.first-hop-limit:1000}") int firstHopLimit,
+                                 @Value("${filmorate.friends.suggestions.second-hop-limit:500}") int secondHopLimit,
+                                 @Value("${filmorate.friends.suggestions.cache-size:100000}") int cacheSize) {
+        this.friendshipGraph = friendshipGraph;
+        this.maxSuggestions = maxSuggestions;
+        this.firstHopLimit = firstHopLimit;
+        this.secondHopLimit = secondHopLimit;
+        this.cacheSize = cacheSize;
+    }
+
+    public int getMaxSuggestions() {
+        return maxSuggestions;
+    }
+
+    public int[] getSuggestedIds(int userId, int limit) {
+        Suggestions cached = cache.get(userId);
+        if (cached == null || !friendshipGraph.isNeighbourhoodUnchangedSince(userId, cached.version())) {
+            // Версию фиксируем до обхода: изменения во время обхода сделают результат устаревшим
+            long version = friendshipGraph.getVersion();
+            cached = new Suggestions(version, compute(userId));
+            if (cache.size() >= cacheSize) {
+                evictOne();
+            }
+            cache.put(userId, cached);
+        }
+
+        int[] ids = cached.ids();
+        return ids.length <= limit ? ids : Arrays.copyOf(ids, limit);
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    private int[] compute(int userId) {
+        int[] friends = friendshipGraph.getFriendIds(userId);
+        int[] requested = friendshipGraph.getFriendRequestIds(userId);
+        IntCounter counter = new IntCounter(Math.min(friends.length, firstHopLimit) * 16);
+
+        forEachSampled(friends, firstHopLimit, friendId -> {
+            int[] friendsOfFriend = friendshipGraph.getFriendIds(friendId);
+            forEachSampled(friendsOfFriend, secondHopLimit, candidateId -> {
+                if (candidateId != userId
+                        && Arrays.binarySearch(friends, candidateId) < 0
+                        && Arrays.binarySearch(requested, candidateId) < 0) {
+                    counter.increment(candidateId);
+                }
+            });
+        });
+
+        // Минимальная куча из лучших кандидатов: больше общих друзей, при равенстве меньший id
+        PriorityQueue<Long> top = new PriorityQueue<>(maxSuggestions + 1);
+        counter.forEach((candidateId, mutualFriends) -> {
+            long score = ((long) mutualFriends << 32) | (Integer.MAX_VALUE - candidateId);
+            if (top.size() < maxSuggestions) {
+                top.add(score);
+            } else if (top.peek() < score) {
+                top.poll();
+                top.add(score);
+            }
+        });
+
+        int[] result = new int[top.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = Integer.MAX_VALUE - (int) (top.poll() & 0xFFFFFFFFL);
+        }
+        log.debug("Рекомендации друзей для пользователя {} пересчитаны: кандидатов {}, выбрано {}",
+                userId, counter.size(), result.length);
+        return result;
+    }
+
+    /**
+     * Обходит не более {@code limit} элементов, равномерно распределённых по массиву,
+     * чтобы у пользователей с большим числом друзей выборка не зависела от порядка id.
+     */
+    private static void forEachSampled(int[] ids, int limit, IntVisitor visitor) {
+        if (ids.length <= limit) {
+            for (int id : ids) {
+                visitor.visit(id);
+            }
+            return;
+        }
+        for (int i = 0; i < limit; i++) {
+            visitor.visit(ids[(int) ((long) i * ids.length / limit)]);
+        }
+    }
+
+    private void evictOne() {
+        Iterator<Integer> iterator = cache.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Suggestions(long version, int[] ids) {
+    }
+
+    @FunctionalInterface
+    private interface IntVisitor {
+        void visit(int id);
+    }
+}
@@ -0,0 +1,296 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.EMPTY;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.with;
+import static ru.yandex.practicum.filmorate.storage.SortedIntArrays.without;
+
+/**
+ * Граф дружбы в памяти: для каждого пользователя хранятся отсортированные массивы id
+ * исходящих связей со статусом CONFIRMED и PENDING. Массивы индексируются id пользователя
+ * и заменяются целиком при каждом изменении, поэтому возвращаемые массивы изменять нельзя.
+ * <p>
+ * Расход памяти: 4 байта на связь плюс заголовок массива (16 байт) на пользователя со связями
+ * и ссылка (4 байта при сжатых указателях) на пользователя в каждой из двух таблиц,
+ * а также 8 байт на пользователя под номер версии последнего изменения.
+ * Оценку возвращает {@link #memoryFootprintBytes()}, сравнить её с замером кучи
+ * можно отчётом {@code GraphFootprintReport} из бенчмарков.
+ * <p>
+ * Каждое изменение списков пользователя отмечается номером версии графа, что позволяет
+ * проверять актуальность вычисленных по графу данных без их пересчёта.
+ */
+@Component
+public class FriendshipGraph {
+    private static final Logger log = LoggerFactory.getLogger(FriendshipGraph.class);
+    private static final long ARRAY_HEADER_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[][] confirmed = new int[0][];
+    private int[][] pending = new int[0][];
+    private long[] modifiedAt = new long[0];
+    private long version;
+
+    @Autowired
+    public FriendshipGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void reload() {
+        int maxUserId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM users", Integer.class);
+        int[][] newConfirmed = new int[maxUserId + 1][];
+        int[][] newPending = new int[maxUserId + 1][];
+        Arrays.fill(newConfirmed, EMPTY);
+        Arrays.fill(newPending, EMPTY);
+
+        AdjacencyLoader loader = new AdjacencyLoader(newConfirmed, newPending);
+        String sql = "SELECT user_id, friend_id, status FROM friendships ORDER BY user_id, friend_id";
+        jdbcTemplate.query(sql, rs -> {
+            loader.add(rs.getInt("user_id"), rs.getInt("friend_id"),
+                    FriendshipStatus.CONFIRMED.name().equals(rs.getString("status")));
+        });
+        loader.flush();
+
+        lock.writeLock().lock();
+        try {
+            confirmed = newConfirmed;
+            pending = newPending;
+            version++;
+            modifiedAt = new long[newConfirmed.length];
+            Arrays.fill(modifiedAt, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Граф дружбы загружен, связей: {}, оценка памяти: {} байт", loader.edges, memoryFootprintBytes());
+    }
+
+    public void setEdge(int userId, int friendId, FriendshipStatus status) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(Math.max(userId, friendId));
+            if (status == FriendshipStatus.CONFIRMED) {
+                pending[userId] = without(pending[userId], friendId);
+                confirmed[userId] = with(confirmed[userId], friendId);
+            } else {
+                confirmed[userId] = without(confirmed[userId], friendId);
+                pending[userId] = with(pending[userId], friendId);
+            }
+            touch(userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeEdge(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            if (userId < confirmed.length) {
+                confirmed[userId] = without(confirmed[userId], friendId);
+                pending[userId] = without(pending[userId], friendId);
+                touch(userId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Удаляет все исходящие и входящие связи пользователя. Обратного индекса нет,
+     * поэтому входящие связи ищутся проходом по всем пользователям: удаление редкое.
+     */
+    public void removeUser(int userId) {
+        lock.writeLock().lock();
+        try {
+            if (userId >= confirmed.length) {
+                return;
+            }
+            confirmed[userId] = EMPTY;
+            pending[userId] = EMPTY;
+            touch(userId);
+            for (int i = 0; i < confirmed.length; i++) {
+                int[] oldConfirmed = confirmed[i];
+                int[] oldPending = pending[i];
+                confirmed[i] = without(oldConfirmed, userId);
+                pending[i] = without(oldPending, userId);
+                if (confirmed[i] != oldConfirmed || pending[i] != oldPending) {
+                    touch(i);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int[] getFriendIds(int userId) {
+        return get(confirmed, userId);
+    }
+
+    public int[] getFriendRequestIds(int userId) {
+        return get(pending, userId);
+    }
+
+    public int[] getCommonFriendIds(int userId, int otherId) {
+        int[] first = getFriendIds(userId);
+        int[] second = getFriendIds(otherId);
+
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Проверяет, что ни список друзей пользователя, ни списки друзей его друзей
+     * не менялись после версии {@code since}.
+     */
+    public boolean isNeighbourhoodUnchangedSince(int userId, long since) {
+        lock.readLock().lock();
+        try {
+            if (userId < 0 || userId >= modifiedAt.length) {
+                return true;
+            }
+            if (modifiedAt[userId] > since) {
+                return false;
+            }
+            for (int friendId : confirmed[userId]) {
+                if (friendId < modifiedAt.length && modifiedAt[friendId] > since) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long memoryFootprintBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 2 * (ARRAY_HEADER_BYTES + REFERENCE_BYTES * confirmed.length)
+                    + ARRAY_HEADER_BYTES + 8L * modifiedAt.length;
+            for (int i = 0; i < confirmed.length; i++) {
+                bytes += arrayBytes(confirmed[i]) + arrayBytes(pending[i]);
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] get(int[][] adjacency, int userId) {
+        lock.readLock().lock();
+        try {
+            if (userId < 0 || userId >= adjacency.length) {
+                return EMPTY;
+            }
+            return adjacency[userId];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureCapacity(int userId) {
+        if (userId < confirmed.length) {
+            return;
+        }
+        int oldLength = confirmed.length;
+        int newLength = Math.max(userId + 1, oldLength * 2);
+        confirmed = Arrays.copyOf(confirmed, newLength);
+        pending = Arrays.copyOf(pending, newLength);
+        modifiedAt = Arrays.copyOf(modifiedAt, newLength);
+        Arrays.fill(confirmed, oldLength, newLength, EMPTY);
+        Arrays.fill(pending, oldLength, newLength, EMPTY);
+    }
+
+    private void touch(int userId) {
+        version++;
+        modifiedAt[userId] = version;
+    }
+
+    private static long arrayBytes(int[] ids) {
+        return ids.length == 0 ? 0 : ARRAY_HEADER_BYTES + 4L * ids.length;
+    }
+
+    /**
+     * Собирает связи одного пользователя во временные буферы: строки приходят
+     * отсортированными по (user_id, friend_id), поэтому массивы получаются уже упорядоченными.
+     */
+    private static final class AdjacencyLoader {
+        private final int[][] confirmed;
+        private final int[][] pending;
+        private int[] confirmedBuffer = new int[16];
+        private int[] pendingBuffer = new int[16];
+        private int confirmedSize;
+        private int pendingSize;
+        private int currentUserId = -1;
+        private long edges;
+
+        private AdjacencyLoader(int[][] confirmed, int[][] pending) {
+            this.confirmed = confirmed;
+            this.pending = pending;
+        }
+
+        private void add(int userId, int friendId, boolean isConfirmed) {
+            if (userId != currentUserId) {
+                flush();
+                currentUserId = userId;
+            }
+            if (isConfirmed) {
+                if (confirmedSize == confirmedBuffer.length) {
+                    confirmedBuffer = Arrays.copyOf(confirmedBuffer, confirmedSize * 2);
+                }
+                confirmedBuffer[confirmedSize++] = friendId;
+            } else {
+                if (pendingSize == pendingBuffer.length) {
+                    pendingBuffer = Arrays.copyOf(pendingBuffer, pendingSize * 2);
+                }
+                pendingBuffer[pendingSize++] = friendId;
+            }
+            edges++;
+        }
+
+        private void flush() {
+            if (currentUserId >= 0 && currentUserId < confirmed.length) {
+                confirmed[currentUserId] = confirmedSize == 0 ? EMPTY : Arrays.copyOf(confirmedBuffer, confirmedSize);
+                pending[currentUserId] = pendingSize == 0 ? EMPTY : Arrays.copyOf(pendingBuffer, pendingSize);
+            }
+            confirmedSize = 0;
+            pendingSize = 0;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Кэш пользователей перед {@link UserDbStorage}.
+ * <p>
+ * Полные записи хранятся в ограниченном кэше Caffeine ({@code filmorate.users.cache.max-size})
+ * как неизменяемые снимки; при чтении создаётся новый {@link User}, поэтому изменения объекта
+ * вызывающим кодом не попадают в кэш. При запуске кэш прогревается самыми активными
+ * пользователями — с наибольшим числом лайков и дружб ({@code filmorate.users.cache.warm-up}).
+ * <p>
+ * Логины и электронные почты всех пользователей хранятся целиком, чтобы проверка уникальности
+ * при создании и изменении не требовала запроса. Эти словари отражают только зафиксированное
+ * состояние: изменения применяются после фиксации транзакции, поэтому незафиксированный
+ * пользователь проверяется уже ограничением UNIQUE в базе.
+ */
+@Component
+public class UserCache implements MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(UserCache.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRowMapper userRowMapper = new UserRowMapper();
+    private final int warmUpSize;
+    private final Cache<Integer, Snapshot> cache;
+
+    private final Map<String, Integer> idByLogin = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idByEmail = new ConcurrentHashMap<>();
+    private final Map<Integer, Keys> keysById = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserCache(JdbcTemplate jdbcTemplate,
+                     @Value("${filmorate.users.cache.max-size:100000}") long maxSize,
+                     @Value("${filmorate.users.cache.warm-up:10000}") int warmUpSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.warmUpSize = warmUpSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    @PostConstruct
+    public void reload() {
+        Map<Integer, Keys> keys = new HashMap<>();
+        jdbcTemplate.query("SELECT id, login, email FROM users", rs -> {
+            keys.put(rs.getInt("id"), new Keys(rs.getString("login"), rs.getString("email")));
+        });
+
+        String activeSql = "SELECT u.* FROM users u " +
+                "JOIN (SELECT user_id, COUNT(*) AS activity FROM (" +
+                "SELECT user_id FROM likes " +
+                "UNION ALL SELECT user_id FROM friendships " +
+                "UNION ALL SELECT friend_id AS user_id FROM friendships) a " +
+                "GROUP BY user_id ORDER BY activity DESC LIMIT ?) t ON u.id = t.user_id";
+        List<User> active = jdbcTemplate.query(activeSql, userRowMapper, warmUpSize);
+
+        synchronized (keysById) {
+            idByLogin.clear();
+            idByEmail.clear();
+            keysById.clear();
+            keys.forEach(this::putKeys);
+        }
+        cache.invalidateAll();
+        active.forEach(user -> cache.put(user.getId(), Snapshot.of(user)));
+        log.info("Кэш пользователей загружен, пользователей: {}, прогрето: {}", keys.size(), active.size());
+    }
+
+    /**
+     * Возвращает пользователя из кэша или загружает его; {@code loader} возвращает {@code null} для отсутствующего.
+     */
+    public User get(int id, IntFunction<User> loader) {
+        Snapshot snapshot = cache.get(id, key -> {
+            User user = loader.apply(key);
+            return user == null ? null : Snapshot.of(user);
+        });
+        return snapshot == null ? null : snapshot.toUser();
+    }
+
+    /**
+     * Возвращает найденных пользователей по id; отсутствующие в кэше загружаются одним вызовом {@code loader}.
+     */
+    public Map<Integer, User> getAll(int[] ids, Function<int[], List<User>> loader) {
+        Set<Integer> keys = new LinkedHashSet<>();
+        for (int id : ids) {
+            keys.add(id);
+        }
+        Map<Integer, Snapshot> snapshots = cache.getAll(keys, missing -> {
+            int[] missingIds = missing.stream().mapToInt(Integer::intValue).toArray();
+            Map<Integer, Snapshot> loaded = new HashMap<>();
+            for (User user : loader.apply(missingIds)) {
+                loaded.put(user.getId(), Snapshot.of(user));
+            }
+            return loaded;
+        });
+
+        Map<Integer, User> users = new HashMap<>(snapshots.size() * 2);
+        snapshots.forEach((id, snapshot) -> users.put(id, snapshot.toUser()));
+        return users;
+    }
+
+    /**
+     * Возвращает id другого зафиксированного пользователя с тем же логином или почтой, либо {@code null}.
+     */
+    public Integer findConflict(User user) {
+        Integer byLogin = user.getLogin() != null ? idByLogin.get(user.getLogin()) : null;
+        if (byLogin != null && byLogin != user.getId()) {
+            return byLogin;
+        }
+        Integer byEmail = user.getEmail() != null ? idByEmail.get(user.getEmail()) : null;
+        if (byEmail != null && byEmail != user.getId()) {
+            return byEmail;
+        }
+        return null;
+    }
+
+    /**
+     * Есть ли зафиксированный пользователь с таким id; ответ из памяти, без запроса к базе.
+     */
+    public boolean contains(int id) {
+        return keysById.containsKey(id);
+    }
+
+    /**
+     * Запоминает логин и почту созданного или изменённого пользователя и сбрасывает его запись.
+     */
+    public void saved(User user) {
+        savedAll(List.of(user));
+    }
+
+    /**
+     * То же для пакета пользователей: после фиксации выполняется одно действие на весь пакет.
+     */
+    public void savedAll(List<User> users) {
+        Map<Integer, Keys> keys = new HashMap<>(users.size() * 2);
+        for (User user : users) {
+            keys.put(user.getId(), new Keys(user.getLogin(), user.getEmail()));
+            cache.invalidate(user.getId());
+        }
+        afterTransaction(() -> {
+            synchronized (keysById) {
+                keys.forEach((id, userKeys) -> {
+                    removeKeys(id);
+                    putKeys(id, userKeys);
+                });
+            }
+        }, () -> cache.invalidateAll(keys.keySet()));
+    }
+
+    public void removed(int id) {
+        cache.invalidate(id);
+        afterTransaction(() -> {
+            synchronized (keysById) {
+                removeKeys(id);
+            }
+        }, () -> cache.invalidate(id));
+    }
+
+    /**
+     * Счётчики попаданий, промахов и вытеснений.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long estimatedSize() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "users");
+        Gauge.builder("filmorate.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", "users")
+                .register(registry);
+    }
+
+    private void putKeys(int id, Keys keys) {
+        keysById.put(id, keys);
+        if (keys.login() != null) {
+            idByLogin.put(keys.login(), id);
+        }
+        if (keys.email() != null) {
+            idByEmail.put(keys.email(), id);
+        }
+    }
+
+    private void removeKeys(int id) {
+        Keys previous = keysById.remove(id);
+        if (previous != null) {
+            if (previous.login() != null) {
+                idByLogin.remove(previous.login(), id);
+            }
+            if (previous.email() != null) {
+                idByEmail.remove(previous.email(), id);
+            }
+        }
+    }
+
+    /**
+     * Словари ключей меняются только после фиксации, а запись сбрасывается при любом завершении:
+     * внутри транзакции в кэш могла попасть незафиксированная версия.
+     */
+    private static void afterTransaction(Runnable onCommit, Runnable onCompletion) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            onCommit.run();
+            onCompletion.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                onCommit.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                onCompletion.run();
+            }
+        });
+    }
+
+    private record Keys(String login, String email) {
+    }
+
+    private record Snapshot(int id, String email, String login, String name, LocalDate birthday) {
+
+        private static Snapshot of(User user) {
+            return new Snapshot(user.getId(), user.getEmail(), user.getLogin(), user.getName(), user.getBirthday());
+        }
+
+        private User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setEmail(email);
+            user.setLogin(login);
+            user.setName(name);
+            user.setBirthday(birthday);
+            return user;
+        }
+    }
+}
@@ -1,27 +1,46 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.InClauseChunks;
 
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+@Timed("filmorate.storage")
 @Repository
 public class UserDbStorage implements UserStorage {
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final String INSERT_USER_SQL =
+            "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
+
+    private static final InClauseChunks USERS_BY_IDS = new InClauseChunks("SELECT * FROM users WHERE id IN (%s)");
 
     private final JdbcTemplate jdbcTemplate;
     private final UserRowMapper userRowMapper;
+    private final FriendshipGraph friendshipGraph;
+    private final UserCache userCache;
 
     @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, FriendshipGraph friendshipGraph, UserCache userCache) {
         this.jdbcTemplate = jdbcTemplate;
         this.userRowMapper = new UserRowMapper();
+        this.friendshipGraph = friendshipGraph;
+        this.userCache = userCache;
     }
 
     @Override
@@ -30,34 +49,113 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, userRowMapper);
     }
 
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        String sql = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sql, userRowMapper, afterId, limit);
+    }
+
+    /**
+     * Выгрузка страницами, как в {@code FilmDbStorage.streamAll}: fetch size H2 не соблюдает.
+     */
+    @Override
+    public void streamAll(Consumer<User> consumer) {
+        int afterId = 0;
+        List<User> page;
+        do {
+            page = getPage(afterId, STREAM_PAGE_SIZE);
+            page.forEach(consumer);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == STREAM_PAGE_SIZE);
+    }
+
     @Override
     public Optional<User> getById(int id) {
+        return Optional.ofNullable(userCache.get(id, this::loadById));
+    }
+
+    @Override
+    public List<User> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        Map<Integer, User> usersById = userCache.getAll(ids, this::loadByIds);
+        List<User> users = new ArrayList<>(usersById.size());
+        for (int id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    private User loadById(int id) {
         String sql = "SELECT * FROM users WHERE id = ?";
         List<User> users = jdbcTemplate.query(sql, userRowMapper, id);
-        return users.stream().findFirst();
+        return users.isEmpty() ? null : users.get(0);
+    }
+
+    private List<User> loadByIds(int[] ids) {
+        List<User> users = new ArrayList<>(ids.length);
+        USERS_BY_IDS.query(jdbcTemplate, ids, rs -> users.add(userRowMapper.mapRow(rs, rs.getRow())));
+        return users;
     }
 
     @Override
     public User create(User user) {
-        String sql = "INSERT INTO users (email, login, name, birthday) VALUES (?, ?, ?, ?)";
-
+        checkUnique(user);
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         jdbcTemplate.update(connection -> {
-            PreparedStatement stmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            stmt.setString(1, user.getEmail());
-            stmt.setString(2, user.getLogin());
-            stmt.setString(3, user.getName());
-            stmt.setDate(4, user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null);
+            PreparedStatement stmt = connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS);
+            setUserParameters(stmt, user);
             return stmt;
         }, keyHolder);
 
         user.setId(keyHolder.getKey().intValue());
+        userCache.saved(user);
         return user;
     }
 
+    @Override
+    @Transactional
+    public List<User> createAll(List<User> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        users.forEach(this::checkUnique);
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement stmt = connection.prepareStatement(INSERT_USER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (User user : users) {
+                    setUserParameters(stmt, user);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    int index = 0;
+                    while (keys.next()) {
+                        users.get(index++).setId(keys.getInt(1));
+                    }
+                    if (index != users.size()) {
+                        throw new SQLException("Получено " + index + " ключей для " + users.size() + " пользователей");
+                    }
+                }
+            }
+            return null;
+        });
+        userCache.savedAll(users);
+        return users;
+    }
+
     @Override
     public User update(User user) {
+        checkUnique(user);
         String sql = "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE id = ?";
         jdbcTemplate.update(sql,
                 user.getEmail(),
@@ -66,19 +164,28 @@ public class UserDbStorage implements UserStorage {
                 user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null,
                 user.getId()
         );
+        userCache.saved(user);
         return user;
     }
 
     @Override
+    @Transactional
     public void delete(int id) {
         String deleteFriendshipsSql = "DELETE FROM friendships WHERE user_id = ? OR friend_id = ?";
         jdbcTemplate.update(deleteFriendshipsSql, id, id);
 
+        String decrementLikesSql = "UPDATE films SET likes_count = likes_count - 1 " +
+                "WHERE id IN (SELECT film_id FROM likes WHERE user_id = ?)";
+        jdbcTemplate.update(decrementLikesSql, id);
+
         String deleteLikesSql = "DELETE FROM likes WHERE user_id = ?";
         jdbcTemplate.update(deleteLikesSql, id);
 
         String deleteUserSql = "DELETE FROM users WHERE id = ?";
         jdbcTemplate.update(deleteUserSql, id);
+
+        AfterCommit.run(() -> friendshipGraph.removeUser(id));
+        userCache.removed(id);
     }
 
     @Override
@@ -88,32 +195,52 @@ public class UserDbStorage implements UserStorage {
         return count != null && count > 0;
     }
 
+    /**
+     * Отклоняет занятые логин или почту без обращения к базе; незафиксированные
+     * конфликты по-прежнему ловит ограничение UNIQUE.
+     */
+    private void checkUnique(User user) {
+        Integer conflictId = userCache.findConflict(user);
+        if (conflictId != null) {
+            throw new DuplicateKeyException("Логин или электронная почта уже заняты пользователем с id " + conflictId);
+        }
+    }
+
+    private static void setUserParameters(PreparedStatement stmt, User user) throws SQLException {
+        stmt.setString(1, user.getEmail());
+        stmt.setString(2, user.getLogin());
+        stmt.setString(3, user.getName());
+        stmt.setDate(4, user.getBirthday() != null ? Date.valueOf(user.getBirthday()) : null);
+    }
+
     public void addFriend(int userId, int friendId, FriendshipStatus pending) {
         String sql = "INSERT INTO friendships (user_id, friend_id, status) VALUES (?, ?, ?)";
         jdbcTemplate.update(sql, userId, friendId, "CONFIRMED");
+        friendshipGraph.setEdge(userId, friendId, FriendshipStatus.CONFIRMED);
     }
 
     public void updateFriendshipStatus(int userId, int friendId, FriendshipStatus status) {
         String sql = "UPDATE friendships SET status = ? WHERE user_id = ? AND friend_id = ?";
-        jdbcTemplate.update(sql, status.toString(), userId, friendId);
+        if (jdbcTemplate.update(sql, status.toString(), userId, friendId) > 0) {
+            friendshipGraph.setEdge(userId, friendId, status);
+        }
     }
 
     public void removeFriend(int userId, int friendId) {
         String sql = "DELETE FROM friendships WHERE user_id = ? AND friend_id = ?";
         jdbcTemplate.update(sql, userId, friendId);
+        friendshipGraph.removeEdge(userId, friendId);
     }
 
     public List<User> getFriends(int userId) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendships f ON u.id = f.friend_id " +
-                "WHERE f.user_id = ? AND f.status = 'CONFIRMED'";
-        return jdbcTemplate.query(sql, userRowMapper, userId);
+        return getByIds(friendshipGraph.getFriendIds(userId));
     }
 
     public List<User> getFriendRequests(int userId) {
-        String sql = "SELECT u.* FROM users u " +
-                "JOIN friendships f ON u.id = f.friend_id " +
-                "WHERE f.user_id = ? AND f.status = 'PENDING'";
-        return jdbcTemplate.query(sql, userRowMapper, userId);
+        return getByIds(friendshipGraph.getFriendRequestIds(userId));
+    }
+
+    public List<User> getCommonFriends(int userId, int otherId) {
+        return getByIds(friendshipGraph.getCommonFriendIds(userId, otherId));
     }
-}
\ No newline at end of file
+}
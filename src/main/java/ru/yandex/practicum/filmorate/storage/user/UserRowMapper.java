@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.jdbc.core.RowMapper;
 import ru.yandex.practicum.filmorate.model.User;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 public class UserRowMapper implements RowMapper<User> {
+    private static final Counter USERS_MAPPED = Metrics.counter("filmorate.rows.mapped", "entity", "user");
+
     @Override
     public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        USERS_MAPPED.increment();
         User user = new User();
         user.setId(rs.getInt("id"));
         user.setEmail(rs.getString("email"));
@@ -3,15 +3,24 @@ package ru.yandex.practicum.filmorate.storage.user;
 import ru.yandex.practicum.filmorate.model.User;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     List<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
+    void streamAll(Consumer<User> consumer);
+
     Optional<User> getById(int id);
 
+    List<User> getByIds(int[] ids);
+
     User create(User user);
 
+    List<User> createAll(List<User> users);
+
     User update(User user);
 
     void delete(int id);
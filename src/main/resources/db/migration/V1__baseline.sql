@@ -1,3 +1,5 @@
+-- Исходная схема. Базы, созданные до появления миграций, принимаются за эту версию (baseline)
+
 -- Таблица рейтингов MPA
 CREATE TABLE IF NOT EXISTS mpa_ratings (
     id INTEGER PRIMARY KEY AUTO_INCREMENT,
@@ -60,4 +62,4 @@ CREATE TABLE IF NOT EXISTS likes (
     PRIMARY KEY (film_id, user_id),
     FOREIGN KEY (film_id) REFERENCES films(id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
-    );
\ No newline at end of file
+    );
@@ -0,0 +1,7 @@
+-- Материализованный счётчик лайков для выборки популярных фильмов
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count INTEGER NOT NULL DEFAULT 0;
+
+UPDATE films f SET likes_count = (SELECT COUNT(*) FROM likes l WHERE l.film_id = f.id);
+
+-- Индекс для выборки популярных фильмов по счётчику лайков
+CREATE INDEX IF NOT EXISTS idx_films_likes_count ON films (likes_count DESC, id);
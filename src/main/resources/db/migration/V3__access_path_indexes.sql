@@ -0,0 +1,8 @@
+-- Индекс для фильтра популярных фильмов по году выпуска (диапазон дат)
+CREATE INDEX IF NOT EXISTS idx_films_release_date ON films (release_date);
+
+-- Обратные и покрывающие индексы: лайки пользователя, входящие заявки в друзья
+-- и друзья пользователя с заданным статусом читаются без обращения к таблице
+CREATE INDEX IF NOT EXISTS idx_likes_user_film ON likes (user_id, film_id);
+CREATE INDEX IF NOT EXISTS idx_friendships_friend_user ON friendships (friend_id, user_id);
+CREATE INDEX IF NOT EXISTS idx_friendships_user_status_friend ON friendships (user_id, status, friend_id);
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class GatedDataSourceTest {
+    private static final DriverManagerDataSource H2 =
+            new DriverManagerDataSource("jdbc:h2:mem:gated;DB_CLOSE_DELAY=-1", "sa", "password");
+
+    @Test
+    public void testPermitIsReleasedOnClose() throws SQLException {
+        GatedDataSource gated = new GatedDataSource(H2, 1, 1000);
+
+        Connection connection = gated.getConnection();
+        assertThat(gated.getAvailablePermits()).isZero();
+
+        connection.close();
+        assertThat(gated.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testPermitIsReleasedWhenTargetFails() {
+        GatedDataSource gated = new GatedDataSource(
+                new DriverManagerDataSource("jdbc:unknown:gated", "sa", "password"), 1, 1000);
+
+        assertThatThrownBy(gated::getConnection).isInstanceOf(SQLException.class);
+        assertThat(gated.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testDoubleCloseReleasesPermitOnce() throws SQLException {
+        GatedDataSource gated = new GatedDataSource(H2, 2, 1000);
+
+        Connection connection = gated.getConnection();
+        connection.close();
+        connection.close();
+
+        assertThat(gated.getAvailablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    public void testAcquireTimeoutThrowsTransientException() throws SQLException {
+        GatedDataSource gated = new GatedDataSource(H2, 1, 50);
+
+        try (Connection ignored = gated.getConnection()) {
+            assertThatThrownBy(gated::getConnection)
+                    .isInstanceOf(SQLTransientConnectionException.class)
+                    .hasMessageContaining("50 мс");
+        }
+        assertThat(gated.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void testAcquireTimeoutIsReportedAsServiceUnavailable() throws SQLException {
+        GatedDataSource gated = new GatedDataSource(H2, 1, 50);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(gated);
+
+        try (Connection ignored = gated.getConnection()) {
+            CannotGetJdbcConnectionException e = catchThrowableOfType(
+                    () -> jdbcTemplate.queryForObject("SELECT 1", Integer.class), CannotGetJdbcConnectionException.class);
+            assertThat(e).hasCauseInstanceOf(SQLTransientConnectionException.class);
+
+            ResponseEntity<Map<String, String>> response = new GlobalExceptionHandler().handleNoConnection(e);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+}
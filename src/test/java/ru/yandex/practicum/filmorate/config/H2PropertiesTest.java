@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class H2PropertiesTest {
+
+    @Test
+    public void testMemoryUrl() {
+        H2Properties properties = new H2Properties(H2Properties.Mode.MEMORY, "films", "./data/films",
+                1024, 0, 500, 16, 100, 1000, 50);
+
+        assertThat(properties.url()).isEqualTo(
+                "jdbc:h2:mem:films;DB_CLOSE_DELAY=-1;LOCK_MODE=0;LOCK_TIMEOUT=500;QUERY_CACHE_SIZE=16");
+    }
+
+    @Test
+    public void testFileUrl() {
+        H2Properties properties = new H2Properties(H2Properties.Mode.FILE, "films", "./data/films",
+                1024, 0, 500, 16, 100, 1000, 50);
+
+        assertThat(properties.url()).isEqualTo("jdbc:h2:file:./data/films;DB_CLOSE_ON_EXIT=FALSE;CACHE_SIZE=1024"
+                + ";WRITE_DELAY=100;RETENTION_TIME=1000;MAX_COMPACT_TIME=50"
+                + ";LOCK_MODE=0;LOCK_TIMEOUT=500;QUERY_CACHE_SIZE=16");
+    }
+
+    @Test
+    public void testDefaultsMatchApplicationProperties() throws IOException {
+        Map<Object, Object> applicationProperties =
+                PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+
+        H2Properties configured = new Binder(new MapConfigurationPropertySource(applicationProperties))
+                .bindOrCreate("filmorate.datasource", H2Properties.class);
+        H2Properties defaults = new Binder(new MapConfigurationPropertySource())
+                .bindOrCreate("filmorate.datasource", H2Properties.class);
+
+        assertThat(configured).isEqualTo(defaults);
+        assertThat(defaults.url()).startsWith("jdbc:h2:mem:filmorate;");
+    }
+}
@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+class SqlStatisticsDataSourceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    public void tearDown() {
+        SqlStatistics.end();
+    }
+
+    @Test
+    public void testStatementsAreCountedPerRequest() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlStatisticsDataSource(dataSource, 1000, true));
+
+        SqlStatistics statistics = SqlStatistics.begin("test", SqlStatistics.NO_BUDGET);
+        jdbcTemplate.queryForList("SELECT id FROM genres");
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM mpa_ratings WHERE id > ?", Integer.class, 0);
+
+        assertThat(statistics.getStatements()).isEqualTo(2);
+        assertThat(statistics.getNanos()).isPositive();
+        assertThat(SqlStatistics.end()).isSameAs(statistics);
+    }
+
+    @Test
+    public void testQueriesOutsideRequestAreNotCounted() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlStatisticsDataSource(dataSource, 0, true));
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM genres")).isNotEmpty();
+        assertThat(SqlStatistics.current()).isNull();
+    }
+
+    @Test
+    public void testEnforcedBudgetStopsExtraQueries() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlStatisticsDataSource(dataSource, 1000, true));
+
+        SqlStatistics.begin("FilmController.addFilm", 2);
+        jdbcTemplate.queryForObject("SELECT name FROM genres WHERE id = ?", String.class, 1);
+        jdbcTemplate.queryForObject("SELECT name FROM genres WHERE id = ?", String.class, 2);
+
+        assertThatThrownBy(() -> jdbcTemplate.queryForObject("SELECT name FROM genres WHERE id = ?", String.class, 3))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("FilmController.addFilm")
+                .hasMessageContaining("бюджете 2");
+    }
+
+    @Test
+    public void testBudgetIsOnlyReportedWhenNotEnforced() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SqlStatisticsDataSource(dataSource, 1000, false));
+
+        SqlStatistics statistics = SqlStatistics.begin("test", 1);
+        jdbcTemplate.queryForList("SELECT id FROM genres");
+        jdbcTemplate.queryForList("SELECT id FROM mpa_ratings");
+
+        assertThat(statistics.getStatements()).isEqualTo(2);
+    }
+}
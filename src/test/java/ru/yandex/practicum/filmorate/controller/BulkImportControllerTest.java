@@ -0,0 +1,135 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserCache;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@Import({
+        JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class,
+        BulkImportController.class,
+        BulkImportService.class,
+        FilmDbStorage.class,
+        FilmPopularityIndex.class,
+        FilmSearchIndex.class,
+        FilmCache.class,
+        UserDbStorage.class,
+        UserCache.class,
+        FriendshipGraph.class,
+        MpaDbStorage.class,
+        GenreDbStorage.class
+})
+class BulkImportControllerTest {
+
+    @Autowired
+    private BulkImportController bulkImportController;
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Test
+    public void importFilmsJsonArrayReturnsIdsInOrder() throws IOException {
+        String body = "[" +
+                "{\"name\":\"First\",\"releaseDate\":\"2000-01-01\",\"duration\":100,\"mpa\":{\"id\":1},\"genres\":[{\"id\":2}]}," +
+                "{\"name\":\"Second\",\"releaseDate\":\"2001-01-01\",\"duration\":90}" +
+                "]";
+
+        BulkImportResult result = bulkImportController.importFilms(stream(body));
+
+        assertEquals(2, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertTrue(result.getErrors().isEmpty());
+        Film first = filmStorage.getById(result.getIds().get(0)).orElseThrow();
+        Film second = filmStorage.getById(result.getIds().get(1)).orElseThrow();
+        assertEquals("First", first.getName());
+        assertEquals("G", first.getMpa().getName());
+        assertEquals(1, first.getGenres().size());
+        assertEquals("Second", second.getName());
+    }
+
+    @Test
+    public void importFilmsNdjsonReportsRowErrors() throws IOException {
+        String body = String.join("\n",
+                "{\"name\":\"Valid\",\"releaseDate\":\"2000-01-01\",\"duration\":100}",
+                "{\"name\":\"\",\"releaseDate\":\"2000-01-01\",\"duration\":100}",
+                "{\"name\":\"Old\",\"releaseDate\":\"1890-01-01\",\"duration\":100}",
+                "{\"name\":\"Bad genre\",\"releaseDate\":\"2000-01-01\",\"duration\":100,\"genres\":[{\"id\":999}]}",
+                "not json",
+                "",
+                "{\"name\":\"Also valid\",\"releaseDate\":\"2000-01-01\",\"duration\":100}");
+
+        BulkImportResult result = bulkImportController.importFilmsNdjson(stream(body));
+
+        assertEquals(6, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertArrayEquals(new int[]{1, 2, 3, 4},
+                result.getErrors().stream().mapToInt(BulkImportResult.RowError::getRow).toArray());
+        assertNotNull(result.getIds().get(0));
+        assertNull(result.getIds().get(1));
+        assertNotNull(result.getIds().get(5));
+    }
+
+    /**
+     * Без транзакции теста: откат пакета должен убрать уже вставленные строки, иначе повтор по одной их задублирует.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void importUsersFallsBackToRowByRowOnConstraintViolation() throws IOException {
+        BulkImportResult taken = bulkImportController.importUsers(stream(
+                "[{\"email\":\"taken@mail.ru\",\"login\":\"taken\",\"birthday\":\"1990-01-01\"}]"));
+
+        String body = "[" +
+                "{\"email\":\"new@mail.ru\",\"login\":\"newlogin\",\"birthday\":\"1990-01-01\"}," +
+                "{\"email\":\"taken@mail.ru\",\"login\":\"other\",\"birthday\":\"1990-01-01\"}," +
+                "{\"email\":\"new@mail.ru\",\"login\":\"duplicate\",\"birthday\":\"1990-01-01\"}" +
+                "]";
+
+        BulkImportResult result = bulkImportController.importUsers(stream(body));
+
+        try {
+            assertEquals(3, result.getReceived());
+            assertEquals(1, result.getImported());
+            assertNotNull(result.getIds().get(0));
+            assertEquals(Arrays.asList(2, 1),
+                    result.getErrors().stream().map(BulkImportResult.RowError::getRow).toList());
+        } finally {
+            userStorage.delete(taken.getIds().get(0));
+            if (result.getIds().get(0) != null) {
+                userStorage.delete(result.getIds().get(0));
+            }
+        }
+    }
+
+    private InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
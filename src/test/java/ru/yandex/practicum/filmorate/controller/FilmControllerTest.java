@@ -1,30 +1,69 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBehindBuffer;
 import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserCache;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.hamcrest.Matchers.contains;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @JdbcTest
 @Import({
+        JacksonAutoConfiguration.class,
         FilmController.class,
         FilmService.class,
         UserService.class,
         FilmDbStorage.class,
+        FilmPopularityIndex.class,
+        FilmSearchIndex.class,
+        FilmCache.class,
+        LikeWriteBehindBuffer.class,
+        FilmLikesIndex.class,
         UserDbStorage.class,
+        UserCache.class,
+        FriendshipGraph.class,
+        FriendSuggestionIndex.class,
         MpaDbStorage.class,
         GenreDbStorage.class
 })
@@ -39,6 +78,34 @@ class FilmControllerTest {
     @Autowired
     private UserDbStorage userStorage;
 
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    private FilmLikesIndex likesIndex;
+
+    @Autowired
+    private FilmSearchIndex searchIndex;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(filmController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+    }
+
     @Test
     public void addFilmValidData() {
         Film film = createValidFilm("Test Film", "Test Description", LocalDate.of(2000, 1, 1), 120);
@@ -128,6 +195,192 @@ class FilmControllerTest {
         assertNotEquals(result2.getId(), result3.getId());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void searchFilmsByPrefixRankedByRelevanceAndLikes() {
+        Film quiet = (Film) filmController.addFilm(
+                createValidFilm("Звёздный квазар", "Тихая история", LocalDate.of(2000, 1, 1), 120)).getBody();
+        Film liked = (Film) filmController.addFilm(
+                createValidFilm("Звездный квазар 2", "Продолжение", LocalDate.of(2001, 1, 1), 120)).getBody();
+        Film described = (Film) filmController.addFilm(
+                createValidFilm("Space", "Фильм про квазары", LocalDate.of(2002, 1, 1), 120)).getBody();
+
+        User user = new User();
+        user.setEmail("viewer@email.com");
+        user.setLogin("viewer");
+        user.setName("Viewer");
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        filmController.addLike(liked.getId(), userStorage.create(user).getId());
+        // Индекс поиска обновляется после фиксации, а транзакция теста не фиксируется
+        searchIndex.reload();
+
+        ResponseEntity<Object> response = filmController.searchFilms("ЗВЕЗДН КВАЗАР", List.of("title", "description"), 10);
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(List.of(liked.getId(), quiet.getId()),
+                ((List<Film>) response.getBody()).stream().map(Film::getId).toList());
+
+        List<Film> byDescription = (List<Film>) filmController.searchFilms("квазары", List.of("description"), 10).getBody();
+        assertEquals(List.of(described.getId()), byDescription.stream().map(Film::getId).toList());
+
+        assertEquals(400, filmController.searchFilms(" ", List.of("title"), 10).getStatusCode().value());
+        assertEquals(400, filmController.searchFilms("квазар", List.of("genre"), 10).getStatusCode().value());
+    }
+
+    @Test
+    public void removeLikeFromMissingFilmReturnsNotFound() {
+        ResponseEntity<Object> response = filmController.removeLike(9999, 1);
+
+        assertEquals(404, response.getStatusCode().value());
+    }
+
+    @Test
+    public void deleteFilmUpdatesIndexesAfterCommit() {
+        Film film = (Film) filmController.addFilm(
+                createValidFilm("Deleted", "Desc", LocalDate.of(2000, 1, 1), 120)).getBody();
+        User user = userStorage.create(createUser("deleter"));
+        filmController.addLike(film.getId(), user.getId());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        try {
+            TestTransaction.start();
+            filmService.deleteFilm(film.getId());
+            assertTrue(popularityIndex.contains(film.getId()));
+            TestTransaction.flagForCommit();
+            TestTransaction.end();
+
+            assertFalse(popularityIndex.contains(film.getId()));
+            assertFalse(likesIndex.hasLike(film.getId(), user.getId()));
+            assertFalse(Arrays.stream(searchIndex.search("Deleted", true, false, 10, popularityIndex::getLikes))
+                    .anyMatch(id -> id == film.getId()));
+        } finally {
+            userService.deleteUser(user.getId());
+        }
+    }
+
+    @Test
+    public void deleteUserUpdatesFilmIndexesAfterCommit() {
+        Film film = (Film) filmController.addFilm(
+                createValidFilm("Liked", "Desc", LocalDate.of(2000, 1, 1), 120)).getBody();
+        User liker = userStorage.create(createUser("liker"));
+        User other = userStorage.create(createUser("other"));
+        filmController.addLike(film.getId(), liker.getId());
+        filmController.addLike(film.getId(), other.getId());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        try {
+            TestTransaction.start();
+            userService.deleteUser(liker.getId());
+            assertEquals(2, popularityIndex.getLikes(film.getId()));
+            TestTransaction.flagForCommit();
+            TestTransaction.end();
+
+            assertFalse(likesIndex.hasLike(film.getId(), liker.getId()));
+            assertTrue(likesIndex.hasLike(film.getId(), other.getId()));
+            assertEquals(1, popularityIndex.getLikes(film.getId()));
+        } finally {
+            filmService.deleteFilm(film.getId());
+            userService.deleteUser(other.getId());
+        }
+    }
+
+    @Test
+    public void rolledBackDeleteKeepsIndexes() {
+        Film film = (Film) filmController.addFilm(
+                createValidFilm("Kept", "Desc", LocalDate.of(2000, 1, 1), 120)).getBody();
+        User user = userStorage.create(createUser("keeper"));
+        filmController.addLike(film.getId(), user.getId());
+
+        filmService.deleteFilm(film.getId());
+        userService.deleteUser(user.getId());
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+
+        assertTrue(popularityIndex.contains(film.getId()));
+        assertEquals(1, popularityIndex.getLikes(film.getId()));
+        assertTrue(likesIndex.hasLike(film.getId(), user.getId()));
+
+        // Фильм и лайк тоже откатились, убираем их из индексов вручную
+        popularityIndex.remove(film.getId());
+        likesIndex.removeFilm(film.getId());
+    }
+
+    @Test
+    public void getFilmsPageAfterId() throws Exception {
+        int first = createFilm("First");
+        int second = createFilm("Second");
+        int third = createFilm("Third");
+
+        mockMvc.perform(get("/films").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(first, second)));
+        mockMvc.perform(get("/films").param("afterId", String.valueOf(second)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(third)));
+        mockMvc.perform(get("/films").param("afterId", String.valueOf(third)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    public void getFilmsPageRejectsLimitOutsideRange() throws Exception {
+        createFilm("Only");
+
+        mockMvc.perform(get("/films").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Размер страницы должен быть от 1 до 1000"));
+        mockMvc.perform(get("/films").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films").param("limit", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    /**
+     * Тело ответа пишется в отдельном потоке, который не видит данных незафиксированной транзакции теста.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamFilmsAsNdjson() throws Exception {
+        int first = createFilm("First");
+        int second = createFilm("Second");
+
+        try {
+            MvcResult started = mockMvc.perform(get("/films").accept("application/x-ndjson"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            String body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson"))
+                    .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+            List<Film> films = new ArrayList<>();
+            for (String line : body.split("\n")) {
+                films.add(objectMapper.readValue(line, Film.class));
+            }
+            assertEquals(List.of(first, second), films.stream().map(Film::getId).toList());
+            assertEquals(List.of("First", "Second"), films.stream().map(Film::getName).toList());
+        } finally {
+            filmService.deleteFilm(first);
+            filmService.deleteFilm(second);
+        }
+    }
+
+    private int createFilm(String name) {
+        return ((Film) filmController.addFilm(createValidFilm(name, name, LocalDate.of(2000, 1, 1), 120)).getBody())
+                .getId();
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@email.com");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
     private Film createValidFilm(String name, String description, LocalDate releaseDate, int duration) {
         Film film = new Film();
         film.setName(name);
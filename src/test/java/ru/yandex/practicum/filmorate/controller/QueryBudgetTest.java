@@ -0,0 +1,160 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.config.QueryBudget;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.config.SqlStatisticsInterceptor.STATEMENTS_HEADER;
+
+/**
+ * Число SQL-запросов эндпоинтов с {@link QueryBudget}. В профиле {@code test} бюджет проверяется
+ * строго, поэтому появление N+1 ломает запрос, а заголовок фиксирует точное число запросов.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:query-budget")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetTest {
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FilmService filmService;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Autowired
+    private FilmCache filmCache;
+
+    private Film film;
+    private User user;
+
+    @BeforeEach
+    public void setUp() {
+        Film newFilm = new Film();
+        newFilm.setName("Budget Film");
+        newFilm.setDescription("Budget Description");
+        newFilm.setReleaseDate(LocalDate.of(2000, 1, 1));
+        newFilm.setDuration(120);
+        film = filmService.createFilm(newFilm);
+        user = createUser();
+    }
+
+    @Test
+    public void testAddLikeStaysWithinBudget() throws Exception {
+        mockMvc.perform(put("/films/{id}/like/{userId}", film.getId(), user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(STATEMENTS_HEADER, "2"));
+    }
+
+    @Test
+    public void testRemoveLikeStaysWithinBudget() throws Exception {
+        mockMvc.perform(put("/films/{id}/like/{userId}", film.getId(), user.getId()))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(delete("/films/{id}/like/{userId}", film.getId(), user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(STATEMENTS_HEADER, "2"));
+    }
+
+    @Test
+    public void testPopularFilmsQueryDatabaseOnlyOnCacheMiss() throws Exception {
+        filmCache.invalidateAll();
+
+        mockMvc.perform(get("/films/popular").param("count", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(STATEMENTS_HEADER, "2"));
+        mockMvc.perform(get("/films/popular").param("count", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(STATEMENTS_HEADER, "0"));
+    }
+
+    @Test
+    public void testCommonFriendsStaysWithinBudget() throws Exception {
+        User other = createUser();
+        User friend = createUser();
+        userStorage.addFriend(user.getId(), friend.getId(), FriendshipStatus.PENDING);
+        userStorage.addFriend(other.getId(), friend.getId(), FriendshipStatus.PENDING);
+
+        mockMvc.perform(get("/users/{id}/friends/common/{otherId}", user.getId(), other.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(STATEMENTS_HEADER, "1"));
+        mockMvc.perform(get("/users/{id}/friends/common/{otherId}", user.getId(), other.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(STATEMENTS_HEADER, "0"));
+    }
+
+    @Test
+    public void testExceededBudgetFailsRequest() throws Exception {
+        mockMvc.perform(get("/test/over-budget"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(header().string(STATEMENTS_HEADER, "2"))
+                .andExpect(result -> assertThat(result.getResolvedException())
+                        .isInstanceOf(IllegalStateException.class)
+                        .hasMessageContaining("OverBudgetController.getDictionaries")
+                        .hasMessageContaining("бюджете 1"));
+    }
+
+    private User createUser() {
+        int n = SEQUENCE.incrementAndGet();
+        User newUser = new User();
+        newUser.setEmail("budget" + n + "@mail.ru");
+        newUser.setLogin("budget" + n);
+        newUser.setName("Budget User " + n);
+        newUser.setBirthday(LocalDate.of(1990, 1, 1));
+        return userStorage.create(newUser);
+    }
+
+    @TestConfiguration
+    static class OverBudgetConfig {
+
+        @Bean
+        OverBudgetController overBudgetController(JdbcTemplate jdbcTemplate) {
+            return new OverBudgetController(jdbcTemplate);
+        }
+    }
+
+    @RestController
+    static class OverBudgetController {
+        private final JdbcTemplate jdbcTemplate;
+
+        OverBudgetController(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @GetMapping("/test/over-budget")
+        @QueryBudget(1)
+        public List<Integer> getDictionaries() {
+            jdbcTemplate.queryForList("SELECT id FROM genres", Integer.class);
+            return jdbcTemplate.queryForList("SELECT id FROM mpa_ratings", Integer.class);
+        }
+    }
+}
@@ -1,33 +1,72 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.GlobalExceptionHandler;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.film.FilmCache;
 import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.FilmLikesIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.film.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.storage.film.GenreDbStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeWriteBehindBuffer;
 import ru.yandex.practicum.filmorate.storage.film.MpaDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.FriendSuggestionIndex;
+import ru.yandex.practicum.filmorate.storage.user.FriendshipGraph;
+import ru.yandex.practicum.filmorate.storage.user.UserCache;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import static org.hamcrest.Matchers.contains;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @JdbcTest
 @Import({
+        JacksonAutoConfiguration.class,
         FilmController.class,
         UserController.class,
         FilmService.class,
         UserService.class,
         FilmDbStorage.class,
+        FilmPopularityIndex.class,
+        FilmSearchIndex.class,
+        FilmCache.class,
+        LikeWriteBehindBuffer.class,
+        FilmLikesIndex.class,
         UserDbStorage.class,
+        UserCache.class,
+        FriendshipGraph.class,
+        FriendSuggestionIndex.class,
         MpaDbStorage.class,
         GenreDbStorage.class
 })
@@ -36,12 +75,24 @@ class UserControllerTest {
     @Autowired
     private UserController userController;
 
+    @Autowired
+    private FilmController filmController;
+
     @Autowired
     private UserDbStorage userStorage;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private MockMvc mockMvc;
+
     @BeforeEach
     public void setUp() {
         userStorage.getAll().forEach(user -> userStorage.delete(user.getId()));
+        mockMvc = MockMvcBuilders.standaloneSetup(userController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
     }
 
     @Test
@@ -222,6 +273,171 @@ class UserControllerTest {
         assertEquals("newlogin", users.getFirst().getName());
     }
 
+    @Test
+    public void getFriendSuggestionsRankedByMutualFriends() {
+        User user = createUser("user");
+        User friend1 = createUser("friend1");
+        User friend2 = createUser("friend2");
+        User both = createUser("both");
+        User single = createUser("single");
+
+        userController.addFriend(user.getId(), friend1.getId());
+        userController.addFriend(user.getId(), friend2.getId());
+        userController.addFriend(friend1.getId(), single.getId());
+        userController.addFriend(friend1.getId(), both.getId());
+        userController.addFriend(friend2.getId(), both.getId());
+        userController.addFriend(friend2.getId(), user.getId());
+
+        ResponseEntity<Object> response = userController.getFriendSuggestions(user.getId(), 10);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(List.of(both.getId(), single.getId()), userIds(response));
+
+        userController.addFriend(user.getId(), both.getId());
+
+        assertEquals(List.of(single.getId()), userIds(userController.getFriendSuggestions(user.getId(), 10)));
+        assertEquals(400, userController.getFriendSuggestions(user.getId(), 0).getStatusCode().value());
+        assertEquals(404, userController.getFriendSuggestions(999, 10).getStatusCode().value());
+    }
+
+    @Test
+    public void getRecommendationsFromUsersWithOverlappingLikes() {
+        User user = createUser("viewer");
+        User similar = createUser("similar");
+        User other = createUser("other");
+        int shared1 = createFilm("Shared 1");
+        int shared2 = createFilm("Shared 2");
+        int fromSimilar = createFilm("From similar");
+        int fromOther = createFilm("From other");
+
+        filmController.addLike(shared1, user.getId());
+        filmController.addLike(shared2, user.getId());
+        filmController.addLike(shared1, similar.getId());
+        filmController.addLike(shared2, similar.getId());
+        filmController.addLike(fromSimilar, similar.getId());
+        filmController.addLike(shared1, other.getId());
+        filmController.addLike(fromOther, other.getId());
+
+        ResponseEntity<Object> response = userController.getRecommendations(user.getId(), 10);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(List.of(fromSimilar, fromOther), filmIds(response));
+
+        filmController.addLike(fromSimilar, user.getId());
+
+        assertEquals(List.of(fromOther), filmIds(userController.getRecommendations(user.getId(), 10)));
+        assertEquals(400, userController.getRecommendations(user.getId(), 0).getStatusCode().value());
+        assertEquals(404, userController.getRecommendations(999, 10).getStatusCode().value());
+    }
+
+    @Test
+    public void createUserWithTakenLoginReturnsConflict() throws Exception {
+        createUser("taken");
+
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"other@email.com\",\"login\":\"taken\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("Логин или электронная почта уже заняты"));
+    }
+
+    @Test
+    public void updateUserWithTakenEmailReturnsConflict() throws Exception {
+        createUser("taken");
+        User other = createUser("other");
+
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":" + other.getId()
+                                + ",\"email\":\"taken@email.com\",\"login\":\"other\",\"birthday\":\"1990-01-01\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void getUsersPageAfterId() throws Exception {
+        int first = createUser("first").getId();
+        int second = createUser("second").getId();
+        int third = createUser("third").getId();
+
+        mockMvc.perform(get("/users").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(first, second)));
+        mockMvc.perform(get("/users").param("afterId", String.valueOf(second)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(third)));
+        mockMvc.perform(get("/users").param("afterId", String.valueOf(third)).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    public void getUsersPageRejectsLimitOutsideRange() throws Exception {
+        createUser("only");
+
+        mockMvc.perform(get("/users").param("limit", "0"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Размер страницы должен быть от 1 до 1000"));
+        mockMvc.perform(get("/users").param("limit", "1001"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users").param("limit", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    /**
+     * Тело ответа пишется в отдельном потоке, который не видит данных незафиксированной транзакции теста.
+     */
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void streamUsersAsNdjson() throws Exception {
+        User first = createUser("first");
+        User second = createUser("second");
+
+        try {
+            MvcResult started = mockMvc.perform(get("/users").accept("application/x-ndjson"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            String body = mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType("application/x-ndjson"))
+                    .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+            List<User> users = new ArrayList<>();
+            for (String line : body.split("\n")) {
+                users.add(objectMapper.readValue(line, User.class));
+            }
+            assertEquals(List.of(first.getId(), second.getId()), users.stream().map(User::getId).toList());
+            assertEquals(List.of("first", "second"), users.stream().map(User::getLogin).toList());
+        } finally {
+            userStorage.delete(first.getId());
+            userStorage.delete(second.getId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> filmIds(ResponseEntity<Object> response) {
+        return ((List<Film>) response.getBody()).stream().map(Film::getId).toList();
+    }
+
+    private int createFilm(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription(name);
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100);
+        return ((Film) filmController.addFilm(film).getBody()).getId();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> userIds(ResponseEntity<Object> response) {
+        return ((List<User>) response.getBody()).stream().map(User::getId).toList();
+    }
+
+    private User createUser(String login) {
+        return (User) userController.createUser(
+                createValidUser(login + "@email.com", login, login, LocalDate.of(1990, 1, 1))).getBody();
+    }
+
     private User createValidUser(String email, String login, String name, LocalDate birthday) {
         User user = new User();
         user.setEmail(email);
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SchemaMigrationTest {
+
+    @Test
+    public void testDatabaseCreatedBeforeMigrationsIsUpgraded() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "password");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        // База в исходной схеме без таблицы истории миграций
+        new ResourceDatabasePopulator(new ClassPathResource("db/migration/V1__baseline.sql")).execute(dataSource);
+        jdbcTemplate.update("INSERT INTO films (name, release_date, duration) VALUES ('Old', '2000-01-01', 90)");
+        jdbcTemplate.update("INSERT INTO users (email, login) VALUES ('old@mail.ru', 'old')");
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) SELECT f.id, u.id FROM films f, users u");
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+        flyway.migrate();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList(
+                "SELECT index_name FROM information_schema.indexes WHERE table_name = 'FILMS'", String.class))
+                .contains("IDX_FILMS_LIKES_COUNT", "IDX_FILMS_RELEASE_DATE");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM genres", Integer.class)).isEqualTo(6);
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("3");
+    }
+}
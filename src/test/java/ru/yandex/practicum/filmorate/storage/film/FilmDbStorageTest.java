@@ -5,23 +5,40 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.Genre;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
-@Import({FilmDbStorage.class})
+@Import({FilmDbStorage.class, FilmSearchIndex.class, FilmCache.class, GenreDbStorage.class, MpaDbStorage.class})
 class FilmDbStorageTest {
 
     @Autowired
     private FilmDbStorage filmStorage;
 
+    @Autowired
+    private GenreDbStorage genreStorage;
+
+    @Autowired
+    private MpaDbStorage mpaStorage;
+
+    @Autowired
+    private FilmCache filmCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private Film testFilm;
 
     @BeforeEach
@@ -74,6 +91,91 @@ class FilmDbStorageTest {
                 .containsExactlyInAnyOrder("Test Film", "Another Film");
     }
 
+    @Test
+    public void testGetPageUsesKeysetCursor() {
+        Film first = filmStorage.create(testFilm);
+
+        Film second = new Film();
+        second.setName("Second Film");
+        second.setReleaseDate(LocalDate.of(2021, 1, 1));
+        second.setDuration(90);
+        filmStorage.create(second);
+
+        List<Film> firstPage = filmStorage.getPage(0, 1);
+        List<Film> secondPage = filmStorage.getPage(firstPage.getLast().getId(), 1);
+        List<Film> lastPage = filmStorage.getPage(second.getId(), 1);
+
+        assertThat(firstPage).extracting(Film::getId).containsExactly(first.getId());
+        assertThat(secondPage).extracting(Film::getId).containsExactly(second.getId());
+        assertThat(lastPage).isEmpty();
+    }
+
+    @Test
+    public void testStreamAllGroupsGenresByFilm() {
+        Genre comedy = new Genre();
+        comedy.setId(1);
+        Genre drama = new Genre();
+        drama.setId(2);
+        testFilm.setGenres(Set.of(comedy, drama));
+        Film withGenres = filmStorage.create(testFilm);
+
+        Film withoutGenres = new Film();
+        withoutGenres.setName("No Genres");
+        withoutGenres.setReleaseDate(LocalDate.of(2021, 1, 1));
+        withoutGenres.setDuration(90);
+        filmStorage.create(withoutGenres);
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAll(streamed::add);
+
+        assertThat(streamed).extracting(Film::getId)
+                .containsExactly(withGenres.getId(), withoutGenres.getId());
+        assertThat(streamed.getFirst().getGenres()).extracting(Genre::getName)
+                .containsExactly("Комедия", "Драма");
+        assertThat(streamed.getFirst().getMpa().getName()).isEqualTo("G");
+        assertThat(streamed.getLast().getGenres()).isEmpty();
+    }
+
+    @Test
+    public void testStreamAllAcrossPages() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 1001; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setGenres(i == 500 ? Set.of(genre(2)) : Set.of());
+            films.add(film);
+        }
+        List<Integer> ids = filmStorage.createAll(films).stream().map(Film::getId).toList();
+
+        List<Film> streamed = new ArrayList<>();
+        filmStorage.streamAll(streamed::add);
+
+        assertThat(streamed).extracting(Film::getId).containsExactlyElementsOf(ids);
+        assertThat(streamed.get(500).getGenres()).extracting(Genre::getName).containsExactly("Драма");
+    }
+
+    @Test
+    public void testLoadGenresForFilmsAcrossChunks() {
+        Genre drama = new Genre();
+        drama.setId(2);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 75; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100);
+            film.setGenres(i % 2 == 0 ? Set.of(drama) : Set.of());
+            ids.add(filmStorage.create(film).getId());
+        }
+
+        List<Film> films = filmStorage.getByIds(ids.reversed().stream().mapToInt(Integer::intValue).toArray());
+
+        assertThat(films).extracting(Film::getId).containsExactlyElementsOf(ids.reversed());
+        assertThat(films).allSatisfy(film -> assertThat(film.getGenres()).hasSize(ids.indexOf(film.getId()) % 2 == 0 ? 1 : 0));
+    }
+
     @Test
     public void testUpdateFilm() {
         Film createdFilm = filmStorage.create(testFilm);
@@ -91,6 +193,24 @@ class FilmDbStorageTest {
         assertThat(foundFilm.get().getName()).isEqualTo("Updated Film");
     }
 
+    @Test
+    public void testUpdateFilmGenresAppliesDiff() {
+        testFilm.setGenres(Set.of(genre(1), genre(2)));
+        Film createdFilm = filmStorage.create(testFilm);
+
+        createdFilm.setGenres(Set.of(genre(2), genre(3)));
+        filmStorage.update(createdFilm);
+
+        Optional<Film> foundFilm = filmStorage.getById(createdFilm.getId());
+        assertThat(foundFilm).isPresent();
+        assertThat(foundFilm.get().getGenres()).extracting(Genre::getId).containsExactly(2, 3);
+
+        createdFilm.setGenres(null);
+        filmStorage.update(createdFilm);
+
+        assertThat(filmStorage.getById(createdFilm.getId()).orElseThrow().getGenres()).isEmpty();
+    }
+
     @Test
     public void testFilmExists() {
         Film createdFilm = filmStorage.create(testFilm);
@@ -114,6 +234,33 @@ class FilmDbStorageTest {
         assertThat(existsAfter).isFalse();
     }
 
+    @Test
+    public void testCachedFilmIsIsolatedAndInvalidatedOnUpdate() {
+        Film createdFilm = filmStorage.create(testFilm);
+        long hitsBefore = filmCache.stats().hitCount();
+
+        Film first = filmStorage.getById(createdFilm.getId()).orElseThrow();
+        first.setName("Изменено вызывающим кодом");
+        first.getMpa().setName("Изменено");
+        Film second = filmStorage.getById(createdFilm.getId()).orElseThrow();
+
+        assertThat(second.getName()).isEqualTo("Test Film");
+        assertThat(second.getMpa().getName()).isEqualTo("G");
+        assertThat(filmCache.stats().hitCount()).isGreaterThan(hitsBefore);
+
+        Film updated = filmStorage.getById(createdFilm.getId()).orElseThrow();
+        updated.setName("Updated Film");
+        filmStorage.update(updated);
+
+        assertThat(filmStorage.getById(createdFilm.getId()).orElseThrow().getName()).isEqualTo("Updated Film");
+        assertThat(filmStorage.getByIds(new int[]{createdFilm.getId()}))
+                .extracting(Film::getName).containsExactly("Updated Film");
+
+        filmStorage.delete(createdFilm.getId());
+
+        assertThat(filmStorage.getById(createdFilm.getId())).isEmpty();
+    }
+
     @Test
     public void testGetAllMpaRatings() {
         List<MpaRating> mpaRatings = filmStorage.getAllMpaRatings();
@@ -131,4 +278,140 @@ class FilmDbStorageTest {
         assertThat(genres).extracting(Genre::getName)
                 .contains("Комедия", "Драма", "Боевик");
     }
+
+    @Test
+    public void testGenreDictionaryReload() {
+        jdbcTemplate.update("INSERT INTO genres (id, name) VALUES (100, 'Вестерн')");
+        try {
+            assertThat(genreStorage.getGenreById(100)).isEmpty();
+
+            genreStorage.reload();
+
+            assertThat(genreStorage.getGenreById(100)).map(Genre::getName).contains("Вестерн");
+            assertThat(genreStorage.getAllGenres()).extracting(Genre::getId).endsWith(100);
+        } finally {
+            jdbcTemplate.update("DELETE FROM genres WHERE id = 100");
+            genreStorage.reload();
+        }
+        assertThat(genreStorage.getGenreById(100)).isEmpty();
+    }
+
+    @Test
+    public void testDictionariesReturnCopies() {
+        genreStorage.getGenreById(1).orElseThrow().setName("Изменено");
+        genreStorage.getAllGenres().forEach(genre -> genre.setName("Изменено"));
+        mpaStorage.getMpaRatingById(1).orElseThrow().setName("Изменено");
+
+        assertThat(genreStorage.getGenreById(1)).map(Genre::getName).contains("Комедия");
+        assertThat(genreStorage.getAllGenres()).extracting(Genre::getName).doesNotContain("Изменено");
+        assertThat(mpaStorage.getMpaRatingById(1)).map(MpaRating::getName).contains("G");
+    }
+
+    @Test
+    public void testAddLikeIsIdempotent() {
+        Film createdFilm = filmStorage.create(testFilm);
+        int userId = createUser("liker@mail.ru", "liker");
+
+        boolean first = filmStorage.addLike(createdFilm.getId(), userId);
+        boolean second = filmStorage.addLike(createdFilm.getId(), userId);
+
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(filmStorage.getLikes(createdFilm.getId())).containsExactly(userId);
+        assertThat(getLikesCount(createdFilm.getId())).isEqualTo(1);
+    }
+
+    @Test
+    public void testAddLikeForMissingUserViolatesForeignKey() {
+        Film createdFilm = filmStorage.create(testFilm);
+
+        assertThatThrownBy(() -> filmStorage.addLike(createdFilm.getId(), 9999))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(getLikesCount(createdFilm.getId())).isZero();
+    }
+
+    @Test
+    public void testRemoveLikeDecrementsCounter() {
+        Film createdFilm = filmStorage.create(testFilm);
+        int userId = createUser("liker@mail.ru", "liker");
+        filmStorage.addLike(createdFilm.getId(), userId);
+
+        boolean removed = filmStorage.removeLike(createdFilm.getId(), userId);
+        boolean removedAgain = filmStorage.removeLike(createdFilm.getId(), userId);
+
+        assertThat(removed).isTrue();
+        assertThat(removedAgain).isFalse();
+        assertThat(getLikesCount(createdFilm.getId())).isZero();
+    }
+
+    @Test
+    public void testGetPopularOrdersByLikesCount() {
+        Film first = filmStorage.create(testFilm);
+
+        Film second = new Film();
+        second.setName("Popular Film");
+        second.setReleaseDate(LocalDate.of(2021, 1, 1));
+        second.setDuration(90);
+        filmStorage.create(second);
+
+        int userId1 = createUser("first@mail.ru", "first");
+        int userId2 = createUser("second@mail.ru", "second");
+        filmStorage.addLike(second.getId(), userId1);
+        filmStorage.addLike(second.getId(), userId2);
+        filmStorage.addLike(first.getId(), userId1);
+
+        List<Film> popular = filmStorage.getPopular(10, null, null);
+
+        assertThat(popular).extracting(Film::getId)
+                .containsExactly(second.getId(), first.getId());
+    }
+
+    @Test
+    public void testGetPopularByYearIncludesWholeYear() {
+        Film lastDayBefore = createFilmReleasedOn(LocalDate.of(2019, 12, 31));
+        Film firstDay = createFilmReleasedOn(LocalDate.of(2020, 1, 1));
+        Film lastDay = createFilmReleasedOn(LocalDate.of(2020, 12, 31));
+        Film firstDayAfter = createFilmReleasedOn(LocalDate.of(2021, 1, 1));
+
+        List<Film> popular = filmStorage.getPopular(10, null, 2020);
+
+        assertThat(popular).extracting(Film::getId)
+                .containsExactly(firstDay.getId(), lastDay.getId())
+                .doesNotContain(lastDayBefore.getId(), firstDayAfter.getId());
+    }
+
+    @Test
+    public void testRecalculateLikesCount() {
+        Film createdFilm = filmStorage.create(testFilm);
+        int userId = createUser("liker@mail.ru", "liker");
+        jdbcTemplate.update("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", createdFilm.getId(), userId);
+
+        int updated = filmStorage.recalculateLikesCount();
+
+        assertThat(updated).isEqualTo(1);
+        assertThat(getLikesCount(createdFilm.getId())).isEqualTo(1);
+    }
+
+    private Film createFilmReleasedOn(LocalDate releaseDate) {
+        Film film = new Film();
+        film.setName("Film " + releaseDate);
+        film.setReleaseDate(releaseDate);
+        film.setDuration(90);
+        return filmStorage.create(film);
+    }
+
+    private int createUser(String email, String login) {
+        jdbcTemplate.update("INSERT INTO users (email, login, name) VALUES (?, ?, ?)", email, login, login);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+
+    private int getLikesCount(int filmId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId);
+    }
+
+    private Genre genre(int id) {
+        Genre genre = new Genre();
+        genre.setId(id);
+        return genre;
+    }
 }
\ No newline at end of file
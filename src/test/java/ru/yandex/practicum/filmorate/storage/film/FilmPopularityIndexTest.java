@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@Import({FilmDbStorage.class, FilmSearchIndex.class, FilmCache.class, GenreDbStorage.class, MpaDbStorage.class, FilmPopularityIndex.class})
+class FilmPopularityIndexTest {
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        popularityIndex.reload();
+    }
+
+    @Test
+    public void testTopFilmsMatchSqlAfterIncrementalUpdates() {
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Film film = filmStorage.create(createFilm("Film " + i, 2000 + i % 3, 1 + i % 4, 1 + i % 6));
+            popularityIndex.register(film);
+            filmIds.add(film.getId());
+        }
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            userIds.add(createUser("user" + i));
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 300; i++) {
+            int filmId = filmIds.get(random.nextInt(filmIds.size()));
+            int userId = userIds.get(random.nextInt(userIds.size()));
+            if (random.nextInt(4) == 0) {
+                if (filmStorage.removeLike(filmId, userId)) {
+                    popularityIndex.decrement(filmId);
+                }
+            } else if (filmStorage.addLike(filmId, userId)) {
+                popularityIndex.increment(filmId);
+            }
+        }
+
+        for (int count : new int[]{1, 5, 10, 20, 50}) {
+            assertThat(topFromIndex(count)).isEqualTo(topFromSql(count));
+        }
+        for (Integer genreId : new Integer[]{null, 1, 2, 5, 6}) {
+            for (Integer year : new Integer[]{null, 2000, 2002, 1999}) {
+                assertThat(topFromIndex(5, genreId, year)).isEqualTo(topFromSql(5, genreId, year));
+            }
+        }
+    }
+
+    @Test
+    public void testUpdateMovesFilmBetweenBuckets() {
+        Film film = filmStorage.create(createFilm("Moving", 2000, 1));
+        popularityIndex.register(film);
+
+        film.setReleaseDate(LocalDate.of(2010, 5, 5));
+        film.setGenres(new HashSet<>(List.of(genre(2))));
+        filmStorage.update(film);
+        popularityIndex.update(film);
+
+        assertThat(topFromIndex(10, 1, null)).doesNotContain(film.getId());
+        assertThat(topFromIndex(10, null, 2000)).doesNotContain(film.getId());
+        assertThat(topFromIndex(10, 2, 2010)).containsExactly(film.getId());
+        assertThat(topFromIndex(10, 2, 2010)).isEqualTo(topFromSql(10, 2, 2010));
+    }
+
+    @Test
+    public void testReloadMatchesSql() {
+        int filmId1 = filmStorage.create(createFilm("First", 2000)).getId();
+        int filmId2 = filmStorage.create(createFilm("Second", 2000)).getId();
+        int userId = createUser("liker");
+        filmStorage.addLike(filmId2, userId);
+
+        popularityIndex.reload();
+
+        assertThat(topFromIndex(10)).containsExactly(filmId2, filmId1);
+        assertThat(popularityIndex.getLikes(filmId2)).isEqualTo(1);
+        assertThat(topFromIndex(10)).isEqualTo(topFromSql(10));
+    }
+
+    @Test
+    public void testRemovedFilmIsNotReturned() {
+        Film film = filmStorage.create(createFilm("Removed", 2000, 3));
+        popularityIndex.register(film);
+
+        popularityIndex.remove(film.getId());
+
+        assertThat(topFromIndex(10)).doesNotContain(film.getId());
+        assertThat(topFromIndex(10, 3, 2000)).doesNotContain(film.getId());
+    }
+
+    private List<Integer> topFromIndex(int count) {
+        return topFromIndex(count, null, null);
+    }
+
+    private List<Integer> topFromIndex(int count, Integer genreId, Integer year) {
+        return filmStorage.getByIds(popularityIndex.getTopFilmIds(count, genreId, year)).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    private List<Integer> topFromSql(int count) {
+        return topFromSql(count, null, null);
+    }
+
+    private List<Integer> topFromSql(int count, Integer genreId, Integer year) {
+        return filmStorage.getPopular(count, genreId, year).stream()
+                .map(Film::getId)
+                .toList();
+    }
+
+    private Film createFilm(String name, int year, int... genreIds) {
+        Film film = new Film();
+        film.setName(name);
+        film.setReleaseDate(LocalDate.of(year, 1, 1));
+        film.setDuration(100);
+        Set<Genre> genres = new HashSet<>();
+        for (int genreId : genreIds) {
+            genres.add(genre(genreId));
+        }
+        film.setGenres(genres);
+        return film;
+    }
+
+    private Genre genre(int id) {
+        Genre genre = new Genre();
+        genre.setId(id);
+        return genre;
+    }
+
+    private int createUser(String login) {
+        jdbcTemplate.update("INSERT INTO users (email, login, name) VALUES (?, ?, ?)", login + "@mail.ru", login, login);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+    }
+}
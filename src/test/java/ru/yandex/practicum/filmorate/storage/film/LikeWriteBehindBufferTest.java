@@ -0,0 +1,200 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.OverloadException;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JdbcTest
+@Import({FilmDbStorage.class, FilmSearchIndex.class, FilmCache.class, GenreDbStorage.class, MpaDbStorage.class,
+        FilmLikesIndex.class, FilmPopularityIndex.class, LikeWriteBehindBuffer.class})
+@TestPropertySource(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval-ms=3600000",
+        "filmorate.likes.write-behind.capacity=2",
+        "filmorate.likes.write-behind.overflow=REJECT"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LikeWriteBehindBufferTest {
+    private final List<Integer> filmIds = new ArrayList<>();
+    private final List<Integer> userIds = new ArrayList<>();
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private FilmLikesIndex likesIndex;
+
+    @Autowired
+    private FilmPopularityIndex popularityIndex;
+
+    @Autowired
+    private LikeWriteBehindBuffer likeBuffer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Буфер пишет каждую порцию своей транзакцией, поэтому тесты работают без транзакции теста и убирают данные сами.
+     */
+    @AfterEach
+    public void tearDown() {
+        likeBuffer.flush();
+        for (int filmId : filmIds) {
+            filmStorage.delete(filmId);
+            likesIndex.removeFilm(filmId);
+            popularityIndex.remove(filmId);
+        }
+        for (int userId : userIds) {
+            likesIndex.removeUser(userId);
+            jdbcTemplate.update("DELETE FROM likes WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        }
+    }
+
+    @Test
+    public void testFlushWritesLastStateOfEachPair() {
+        int filmId = createFilm();
+        int keeper = createUser("keeper");
+        int flipper = createUser("flipper");
+
+        likesIndex.addLike(filmId, keeper);
+        likeBuffer.markDirty(filmId, keeper);
+        likesIndex.addLike(filmId, flipper);
+        likeBuffer.markDirty(filmId, flipper);
+        likesIndex.removeLike(filmId, flipper);
+        likeBuffer.markDirty(filmId, flipper);
+
+        assertThat(likeBuffer.getPendingCount()).isEqualTo(2);
+        assertThat(filmStorage.getLikes(filmId)).isEmpty();
+
+        assertThat(likeBuffer.flush()).isEqualTo(2);
+
+        assertThat(likeBuffer.getPendingCount()).isZero();
+        assertThat(filmStorage.getLikes(filmId)).containsExactly(keeper);
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectedLikeIsRolledBackInIndexes() {
+        int filmId = createFilm();
+        int keeper = createUser("keeper");
+        int missingUser = keeper + 1000;
+
+        for (int userId : new int[]{keeper, missingUser}) {
+            likesIndex.addLike(filmId, userId);
+            popularityIndex.increment(filmId);
+            likeBuffer.markDirty(filmId, userId);
+        }
+
+        assertThat(likeBuffer.flush()).isEqualTo(2);
+
+        assertThat(likeBuffer.getPendingCount()).isZero();
+        assertThat(filmStorage.getLikes(filmId)).containsExactly(keeper);
+        assertThat(likesIndex.hasLike(filmId, keeper)).isTrue();
+        assertThat(likesIndex.hasLike(filmId, missingUser)).isFalse();
+        assertThat(popularityIndex.getLikes(filmId)).isEqualTo(1);
+    }
+
+    @Test
+    public void testFailedBatchIsWrittenRowByRow() {
+        int filmId = createFilm();
+        int first = createUser("first");
+        int second = createUser("second");
+        int leaving = createUser("leaving");
+        int missingUser = leaving + 1000;
+
+        likeFilm(filmId, leaving);
+        assertThat(likeBuffer.flush()).isEqualTo(1);
+
+        likeFilm(filmId, first);
+        likeFilm(filmId, missingUser);
+        likeFilm(filmId, second);
+        likesIndex.removeLike(filmId, leaving);
+        popularityIndex.decrement(filmId);
+        likeBuffer.markDirty(filmId, leaving);
+
+        assertThat(likeBuffer.flush()).isEqualTo(4);
+
+        assertThat(likeBuffer.getPendingCount()).isZero();
+        assertThat(filmStorage.getLikes(filmId)).containsExactlyInAnyOrder(first, second);
+        assertThat(jdbcTemplate.queryForObject("SELECT likes_count FROM films WHERE id = ?", Integer.class, filmId))
+                .isEqualTo(2);
+        assertThat(likesIndex.hasLike(filmId, missingUser)).isFalse();
+        assertThat(likesIndex.hasLike(filmId, leaving)).isFalse();
+        assertThat(popularityIndex.getLikes(filmId)).isEqualTo(2);
+    }
+
+    @Test
+    public void testBatchIsRequeuedWhenDatabaseIsUnavailable() {
+        int filmId = createFilm();
+        int userId = createUser("patient");
+
+        likeFilm(filmId, userId);
+
+        jdbcTemplate.execute("ALTER TABLE likes RENAME TO likes_offline");
+        try {
+            assertThat(likeBuffer.flush()).isZero();
+            assertThat(likeBuffer.getPendingCount()).isEqualTo(1);
+            assertThat(likesIndex.hasLike(filmId, userId)).isTrue();
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE likes_offline RENAME TO likes");
+        }
+
+        assertThat(likeBuffer.flush()).isEqualTo(1);
+
+        assertThat(likeBuffer.getPendingCount()).isZero();
+        assertThat(filmStorage.getLikes(filmId)).containsExactly(userId);
+        assertThat(popularityIndex.getLikes(filmId)).isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectsWhenFull() {
+        likeBuffer.markDirty(1, 1);
+        likeBuffer.markDirty(1, 2);
+
+        assertThatThrownBy(() -> likeBuffer.awaitCapacity()).isInstanceOf(OverloadException.class);
+
+        likeBuffer.flush();
+        likeBuffer.awaitCapacity();
+    }
+
+    private int createFilm() {
+        Film film = new Film();
+        film.setName("Premiere");
+        film.setDescription("Premiere");
+        film.setReleaseDate(LocalDate.of(2020, 1, 1));
+        film.setDuration(120);
+        int filmId = filmStorage.create(film).getId();
+        filmIds.add(filmId);
+        return filmId;
+    }
+
+    private void likeFilm(int filmId, int userId) {
+        likesIndex.addLike(filmId, userId);
+        popularityIndex.increment(filmId);
+        likeBuffer.markDirty(filmId, userId);
+    }
+
+    private int createUser(String login) {
+        jdbcTemplate.update("INSERT INTO users (email, login, name) VALUES (?, ?, ?)", login + "@mail.ru", login, login);
+        int userId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE login = ?", Integer.class, login);
+        userIds.add(userId);
+        return userId;
+    }
+}
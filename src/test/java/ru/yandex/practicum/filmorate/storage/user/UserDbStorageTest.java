@@ -5,21 +5,36 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+import ru.yandex.practicum.filmorate.model.FriendshipStatus;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @JdbcTest
-@Import({UserDbStorage.class})
+@Import({UserDbStorage.class, FriendshipGraph.class, UserCache.class})
 class UserDbStorageTest {
 
     @Autowired
     private UserDbStorage userStorage;
 
+    @Autowired
+    private FriendshipGraph friendshipGraph;
+
+    @Autowired
+    private UserCache userCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private User testUser;
 
     @BeforeEach
@@ -68,6 +83,26 @@ class UserDbStorageTest {
                 .containsExactlyInAnyOrder("test@mail.ru", "another@mail.ru");
     }
 
+    @Test
+    public void testGetPageAndStreamAll() {
+        User first = userStorage.create(testUser);
+
+        User second = new User();
+        second.setEmail("second@mail.ru");
+        second.setLogin("secondlogin");
+        second.setName("Second User");
+        userStorage.create(second);
+
+        List<User> firstPage = userStorage.getPage(0, 1);
+        List<User> secondPage = userStorage.getPage(first.getId(), 10);
+        List<User> streamed = new ArrayList<>();
+        userStorage.streamAll(streamed::add);
+
+        assertThat(firstPage).extracting(User::getId).containsExactly(first.getId());
+        assertThat(secondPage).extracting(User::getId).containsExactly(second.getId());
+        assertThat(streamed).extracting(User::getId).containsExactly(first.getId(), second.getId());
+    }
+
     @Test
     public void testUpdateUser() {
         User createdUser = userStorage.create(testUser);
@@ -85,6 +120,38 @@ class UserDbStorageTest {
         assertThat(foundUser.get().getName()).isEqualTo("Updated Name");
     }
 
+    @Test
+    public void testUserCacheReturnsCopiesAndRejectsTakenKeys() {
+        User createdUser = userStorage.create(testUser);
+        userCache.reload();
+        try {
+            assertThat(userCache.contains(createdUser.getId())).isTrue();
+            assertThat(userCache.contains(createdUser.getId() + 1)).isFalse();
+
+            User first = userStorage.getById(createdUser.getId()).orElseThrow();
+            first.setName("Изменено вызывающим кодом");
+            assertThat(userStorage.getById(createdUser.getId()).orElseThrow().getName()).isEqualTo("Test User");
+
+            User sameLogin = new User();
+            sameLogin.setEmail("other@mail.ru");
+            sameLogin.setLogin("testlogin");
+            assertThatThrownBy(() -> userStorage.create(sameLogin)).isInstanceOf(DuplicateKeyException.class);
+
+            User sameEmail = new User();
+            sameEmail.setEmail("test@mail.ru");
+            sameEmail.setLogin("otherlogin");
+            assertThatThrownBy(() -> userStorage.create(sameEmail)).isInstanceOf(DuplicateKeyException.class);
+
+            createdUser.setName("Updated Name");
+            userStorage.update(createdUser);
+            assertThat(userStorage.getById(createdUser.getId()).orElseThrow().getName()).isEqualTo("Updated Name");
+        } finally {
+            userStorage.delete(createdUser.getId());
+            userCache.reload();
+        }
+        assertThat(userStorage.getById(createdUser.getId())).isEmpty();
+    }
+
     @Test
     public void testUserExists() {
         User createdUser = userStorage.create(testUser);
@@ -107,4 +174,88 @@ class UserDbStorageTest {
         assertThat(existsBefore).isTrue();
         assertThat(existsAfter).isFalse();
     }
+
+    @Test
+    public void testReverseAccessPathIndexesExist() {
+        List<String> indexes = jdbcTemplate.queryForList(
+                "SELECT index_name FROM information_schema.indexes " +
+                "WHERE table_name IN ('LIKES', 'FRIENDSHIPS', 'FILMS')", String.class);
+
+        assertThat(indexes).contains("IDX_LIKES_USER_FILM", "IDX_FRIENDSHIPS_FRIEND_USER",
+                "IDX_FRIENDSHIPS_USER_STATUS_FRIEND", "IDX_FILMS_RELEASE_DATE");
+    }
+
+    @Test
+    public void testGetCommonFriends() {
+        User first = userStorage.create(testUser);
+        User second = userStorage.create(createUser("second"));
+        User common = userStorage.create(createUser("common"));
+        User onlyFirst = userStorage.create(createUser("onlyfirst"));
+
+        userStorage.addFriend(first.getId(), common.getId(), FriendshipStatus.PENDING);
+        userStorage.addFriend(first.getId(), onlyFirst.getId(), FriendshipStatus.PENDING);
+        userStorage.addFriend(second.getId(), common.getId(), FriendshipStatus.PENDING);
+
+        List<User> commonFriends = userStorage.getCommonFriends(first.getId(), second.getId());
+
+        assertThat(commonFriends).extracting(User::getId).containsExactly(common.getId());
+    }
+
+    @Test
+    public void testFriendshipGraphMatchesDatabase() {
+        User first = userStorage.create(testUser);
+        User second = userStorage.create(createUser("second"));
+        User third = userStorage.create(createUser("third"));
+
+        userStorage.addFriend(first.getId(), second.getId(), FriendshipStatus.PENDING);
+        userStorage.addFriend(first.getId(), third.getId(), FriendshipStatus.PENDING);
+        userStorage.updateFriendshipStatus(first.getId(), third.getId(), FriendshipStatus.PENDING);
+        userStorage.addFriend(third.getId(), second.getId(), FriendshipStatus.PENDING);
+        userStorage.delete(second.getId());
+
+        // Граф меняется только после фиксации удаления
+        assertThat(friendshipGraph.getFriendIds(third.getId())).containsExactly(second.getId());
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        try {
+            assertThat(userStorage.getFriends(first.getId())).isEmpty();
+            assertThat(userStorage.getFriendRequests(first.getId())).extracting(User::getId)
+                    .containsExactly(third.getId());
+            assertThat(friendshipGraph.getFriendIds(third.getId())).isEmpty();
+
+            int[] friendRequests = friendshipGraph.getFriendRequestIds(first.getId());
+            friendshipGraph.reload();
+
+            assertThat(friendshipGraph.getFriendRequestIds(first.getId())).containsExactly(friendRequests);
+            assertThat(friendshipGraph.getFriendIds(first.getId())).isEmpty();
+            assertThat(friendshipGraph.memoryFootprintBytes()).isPositive();
+        } finally {
+            userStorage.delete(first.getId());
+            userStorage.delete(third.getId());
+        }
+    }
+
+    @Test
+    public void testRolledBackDeleteKeepsFriendshipGraph() {
+        User first = userStorage.create(testUser);
+        User second = userStorage.create(createUser("second"));
+        userStorage.addFriend(first.getId(), second.getId(), FriendshipStatus.PENDING);
+
+        userStorage.delete(second.getId());
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+
+        assertThat(friendshipGraph.getFriendIds(first.getId())).containsExactly(second.getId());
+        friendshipGraph.removeUser(first.getId());
+    }
+
+    private User createUser(String login) {
+        User user = new User();
+        user.setEmail(login + "@mail.ru");
+        user.setLogin(login);
+        user.setName(login);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
 }
\ No newline at end of file